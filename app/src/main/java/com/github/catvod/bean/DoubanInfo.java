@@ -1,5 +1,9 @@
 package com.github.catvod.bean;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class DoubanInfo {
         private String id;
         private String plot;
@@ -84,4 +88,31 @@ public class DoubanInfo {
         public void setName(String name) {
             this.name = name;
         }
+
+        // 二进制序列化，和 Vod.writeTo 配合使用
+        public void writeTo(DataOutputStream out) throws IOException {
+            Vod.writeString(out, id);
+            Vod.writeString(out, plot);
+            Vod.writeString(out, year);
+            Vod.writeString(out, region);
+            Vod.writeString(out, actors);
+            Vod.writeString(out, director);
+            Vod.writeString(out, type);
+            Vod.writeString(out, rating);
+            Vod.writeString(out, name);
+        }
+
+        public static DoubanInfo readFrom(DataInputStream in) throws IOException {
+            DoubanInfo info = new DoubanInfo();
+            info.id = Vod.readString(in);
+            info.plot = Vod.readString(in);
+            info.year = Vod.readString(in);
+            info.region = Vod.readString(in);
+            info.actors = Vod.readString(in);
+            info.director = Vod.readString(in);
+            info.type = Vod.readString(in);
+            info.rating = Vod.readString(in);
+            info.name = Vod.readString(in);
+            return info;
+        }
     }
@@ -18,6 +18,8 @@ import java.util.Map;
 
 public class Result {
 
+    public static final int PAGE_SIZE = 72; // 自动分页时每页的条数
+
     @SerializedName("class")
     private List<Class> classes;
     @SerializedName("list")
@@ -233,12 +235,12 @@ public class Result {
             page = Integer.parseInt(pg);
         } catch (NumberFormatException e) {
         }
-        int limit = 72;
+        int limit = PAGE_SIZE;
         int total = this.list.size();
         int count = (total + limit - 1) / limit;
         page(page, count, limit, total);
 
-        int fromIndex = (page - 1) * limit;
+        int fromIndex = Math.min(Math.max(page - 1, 0) * limit, total);
         int toIndex = Math.min(fromIndex + limit, total);
         this.list = this.list.subList(fromIndex, toIndex);
         
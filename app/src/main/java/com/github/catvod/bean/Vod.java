@@ -3,6 +3,11 @@ package com.github.catvod.bean;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 public class Vod {
 
     @SerializedName("type_name")
@@ -138,6 +143,10 @@ public class Vod {
         this.vodRemarks = vodRemarks;
     }
 
+    public String getVodRemarks() {
+        return this.vodRemarks == null ? "" : this.vodRemarks;
+    }
+
     public void setVodYear(String vodYear) {
         this.vodYear = vodYear;
     }
@@ -178,6 +187,10 @@ public class Vod {
         this.vodTag = vodTag;
     }
 
+    public String getVodTag() {
+        return this.vodTag == null ? "" : this.vodTag;
+    }
+
     public void setAction(String action) {
         this.action = action;
     }
@@ -186,6 +199,95 @@ public class Vod {
         this.style = style;
     }
 
+    /**
+     * 二进制序列化，字段顺序固定，null 和空串分开记录
+     *
+     * @param out 输出流
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        writeString(out, typeName);
+        writeString(out, vodId);
+        writeString(out, vodName);
+        writeString(out, vodPic);
+        writeString(out, vodRemarks);
+        writeString(out, vodYear);
+        writeString(out, vodArea);
+        writeString(out, vodActor);
+        writeString(out, vodDirector);
+        writeString(out, vodContent);
+        writeString(out, vodPlayFrom);
+        writeString(out, vodPlayUrl);
+        writeString(out, vodTag);
+        writeString(out, action);
+        out.writeBoolean(style != null);
+        if (style != null) {
+            writeString(out, style.type);
+            out.writeFloat(style.ratio == null ? Float.NaN : style.ratio);
+        }
+        out.writeBoolean(doubanInfo != null);
+        if (doubanInfo != null) {
+            doubanInfo.writeTo(out);
+        }
+    }
+
+    public static Vod readFrom(DataInputStream in) throws IOException {
+        Vod vod = new Vod();
+        vod.typeName = readString(in);
+        vod.vodId = readString(in);
+        vod.vodName = readString(in);
+        vod.vodPic = readString(in);
+        vod.vodRemarks = readString(in);
+        vod.vodYear = readString(in);
+        vod.vodArea = readString(in);
+        vod.vodActor = readString(in);
+        vod.vodDirector = readString(in);
+        vod.vodContent = readString(in);
+        vod.vodPlayFrom = readString(in);
+        vod.vodPlayUrl = readString(in);
+        vod.vodTag = readString(in);
+        vod.action = readString(in);
+        if (in.readBoolean()) {
+            String type = readString(in);
+            float ratio = in.readFloat();
+            vod.style = new Style(type, Float.isNaN(ratio) ? null : ratio);
+        }
+        vod.doubanInfo = in.readBoolean() ? DoubanInfo.readFrom(in) : null;
+        return vod;
+    }
+
+    /**
+     * 变长长度（0 表示 null，否则为字节数 + 1）加 UTF-8 字节
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length + 1;
+        while ((length & ~0x7F) != 0) {
+            out.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
     public static class Style {
 
         @SerializedName("type")
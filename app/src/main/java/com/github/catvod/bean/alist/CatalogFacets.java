@@ -0,0 +1,140 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Logger;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 目录的分面索引，索引加载后建一次，之后各种 分类 × 评分门槛 × 评分排序 的组合都只是位图求交和顺序遍历：
+ * 子目录 → 位图（第一次用到时计算并缓存），评分 ≥ 0..10 分各一个位图，
+ * 以及按评分升序、降序排好的记录排列（同分按记录顺序，和稳定排序的结果一致）。
+ * 记录编号是完整目录中的位置。
+ */
+public class CatalogFacets {
+
+    public static final int SORT_NONE = 0;
+    public static final int SORT_DESC = 1;
+    public static final int SORT_ASC = 2;
+
+    private static final int BUCKETS = 10; // 评分 0..10 分，每分一个位图
+    private static final int MAX_SUBPATHS = 256; // 子目录位图的缓存上限
+
+    private final VodCatalog catalog;
+    private final int size;
+    private final BitSet[] atLeast; // atLeast[b]：评分 ≥ b 的记录
+    private final int[] ascending; // 按评分升序的记录
+    private final int[] descending; // 按评分降序的记录
+    private final float[] ascendingRatings; // ascending 对应的评分，用于二分查找门槛
+    private final Map<String, BitSet> subpaths = new ConcurrentHashMap<>();
+
+    /**
+     * @param catalog 完整的目录（不是视图）
+     */
+    CatalogFacets(VodCatalog catalog) {
+        long startTime = System.currentTimeMillis();
+        this.catalog = catalog;
+        this.size = catalog.size();
+        this.atLeast = new BitSet[BUCKETS + 1];
+        for (int b = 0; b <= BUCKETS; b++) atLeast[b] = new BitSet(size);
+
+        // 评分非负，浮点位模式和数值同序；低 32 位放记录编号，排序后同分的按记录顺序
+        long[] keys = new long[size];
+        for (int r = 0; r < size; r++) {
+            float rating = catalog.getRating(r);
+            int bucket = Math.min((int) rating, BUCKETS);
+            for (int b = 0; b <= bucket; b++) atLeast[b].set(r);
+            keys[r] = ((long) Float.floatToIntBits(rating) << 32) | r;
+        }
+        Arrays.sort(keys);
+        this.ascending = new int[size];
+        this.ascendingRatings = new float[size];
+        for (int i = 0; i < size; i++) {
+            ascending[i] = (int) keys[i];
+            ascendingRatings[i] = Float.intBitsToFloat((int) (keys[i] >>> 32));
+        }
+        for (int r = 0; r < size; r++) {
+            keys[r] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(catalog.getRating(r))) << 32) | r;
+        }
+        Arrays.sort(keys);
+        this.descending = new int[size];
+        for (int i = 0; i < size; i++) descending[i] = (int) keys[i];
+        Logger.log("分面索引" + size + "条，耗时：" + (System.currentTimeMillis() - startTime));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * vodId（不含盘名前缀）以 prefix 开头的记录，返回的位图是共享的，不能修改
+     *
+     * @param prefix 路径前缀，如 /电影/4K
+     */
+    public BitSet subpath(String prefix) {
+        BitSet bits = subpaths.get(prefix);
+        if (bits != null) {
+            return bits;
+        }
+        bits = new BitSet(size);
+        for (int r : catalog.filter(prefix)) bits.set(r);
+        if (subpaths.size() >= MAX_SUBPATHS) {
+            subpaths.clear();
+        }
+        subpaths.put(prefix, bits);
+        return bits;
+    }
+
+    /**
+     * 在 scope 中挑出评分 ≥ threshold 的记录并排序
+     *
+     * @param scope     候选记录，会被修改
+     * @param threshold 评分门槛
+     * @param sort      {@link #SORT_NONE}、{@link #SORT_DESC} 或 {@link #SORT_ASC}
+     * @return 记录编号；不排序时按记录顺序
+     */
+    public int[] select(BitSet scope, float threshold, int sort) {
+        int[] result;
+        int n = 0;
+        if (sort == SORT_ASC) {
+            int from = lowerBound(threshold);
+            result = new int[Math.min(scope.cardinality(), size - from)];
+            for (int i = from; i < size && n < result.length; i++) {
+                if (scope.get(ascending[i])) result[n++] = ascending[i];
+            }
+        } else if (sort == SORT_DESC) {
+            int to = size - lowerBound(threshold); // 降序排列中评分 ≥ threshold 的是前 to 条
+            result = new int[Math.min(scope.cardinality(), to)];
+            for (int i = 0; i < to && n < result.length; i++) {
+                if (scope.get(descending[i])) result[n++] = descending[i];
+            }
+        } else {
+            int bucket = (int) Math.max(0, Math.min(threshold, BUCKETS));
+            scope.and(atLeast[bucket]);
+            result = new int[scope.cardinality()];
+            boolean exact = bucket == threshold;
+            for (int r = scope.nextSetBit(0); r >= 0; r = scope.nextSetBit(r + 1)) {
+                if (exact || catalog.getRating(r) >= threshold) result[n++] = r;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * 升序排列中第一个评分 ≥ threshold 的位置
+     */
+    private int lowerBound(float threshold) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ascendingRatings[mid] < threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.catvod.bean.alist;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 两个列表首尾相接的只读视图，不复制元素
+ */
+public class ConcatList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> first;
+    private final List<T> second;
+
+    public ConcatList(List<T> first, List<T> second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public T get(int index) {
+        int size = first.size();
+        return index < size ? first.get(index) : second.get(index - size);
+    }
+
+    @Override
+    public int size() {
+        return first.size() + second.size();
+    }
+}
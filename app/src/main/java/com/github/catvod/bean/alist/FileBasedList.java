@@ -1,29 +1,69 @@
 package com.github.catvod.bean.alist;
 
-import com.google.gson.Gson;
-
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import java.nio.charset.StandardCharsets;
 
-public class FileBasedList<T> implements List<T> {
+public class FileBasedList<T> implements List<T>, Closeable {
     private final File file; // 存储数据的文件
-    private final Gson gson; // Gson 用于序列化和反序列化
-    private final Class<T> type; // 泛型类型
-    private int size; // 当前列表的大小
-    private final List<Long> linePositions; // 记录每一行的文件位置
+    private final File indexFile; // 行位置索引，文件长度 + 每行起始位置
+    private final RecordCodec<T> codec; // 记录的编码方式
+    private final ListCleaner.Handle handle; // 临时列表的清理句柄，指定路径的列表为 null
+    // 写入在本对象的锁内进行；读取不加锁，先读 lineCount 再读 linePositions，
+    // 追加时先写好位置（扩容时先复制）再增加 lineCount，读到的行数对应的位置一定已经可见
+    private volatile int size; // 当前列表的大小
+    private volatile long[] linePositions; // 记录每一行的文件位置
+    private volatile int lineCount; // 已写入文件的行数
     private final List<T> buffer; // 内存缓存
     private static final int BUFFER_SIZE = 1000; // 缓存大小
+    private static final long SEGMENT_SIZE = 1L << 30; // 单个映射的大小，超过 2G 的文件分段映射
+    private static final int SEGMENT_OVERLAP = 1 << 20; // 每段多映射一点，跨段的行也能在一段内读完
+    private volatile MappedByteBuffer[] segments; // 只读映射，文件有写入时作废，下次读取时重新映射
+    private volatile long mappedLength;
+    private static final int BLOCK_SIZE = 256; // 读缓存按块管理，每块 256 条
+    private static final int CACHE_BLOCKS = 16; // 读缓存最多保留的块数
+    // 按访问顺序排列的块，超出上限时淘汰最久未用的块；块内的记录在首次 get 时填充
+    private final Map<Integer, Object[]> blocks = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHE_BLOCKS;
+        }
+    };
 
     public FileBasedList(String filePath, Class<T> type) {
+        this(filePath, new JsonCodec<>(type));
+    }
+
+    public FileBasedList(String filePath, RecordCodec<T> codec) {
+        this(filePath, codec, false);
+    }
+
+    // 不带文件名的构造函数，自动生成随机文件名，使用该类型的默认编码
+    public FileBasedList(Class<T> type) {
+        this(generateRandomFileName(), RecordCodec.forType(type), true);
+    }
+
+    /**
+     * @param temporary 临时列表：数据先留在内存，超过 {@link #BUFFER_SIZE} 条才创建文件；
+     *                  close 或被回收后删除文件
+     */
+    private FileBasedList(String filePath, RecordCodec<T> codec, boolean temporary) {
         this.file = new File(filePath);
-        this.gson = new Gson();
-        this.type = type;
-        this.linePositions = new ArrayList<>();
+        this.indexFile = new File(filePath + ".idx");
+        this.codec = codec;
+        this.linePositions = new long[1024];
         this.buffer = new ArrayList<>(BUFFER_SIZE);
+        if (temporary) {
+            this.handle = ListCleaner.register(this, file, indexFile);
+            return;
+        }
+        this.handle = null;
 
         // 确保文件的父目录存在，如果不存在则创建所有缺失的父目录
         File parentDir = file.getParentFile();
@@ -38,6 +78,7 @@ public class FileBasedList<T> implements List<T> {
         if (!file.exists()) {
             try {
                 file.createNewFile();
+                indexFile.delete(); // 删除残留的旧索引
                 this.size = 0; // 新文件大小为 0
             } catch (IOException e) {
                 throw new RuntimeException("Failed to create file: " + filePath, e);
@@ -48,35 +89,153 @@ public class FileBasedList<T> implements List<T> {
         }
     }
 
-    // 不带文件名的构造函数，自动生成随机文件名
-    public FileBasedList(Class<T> type) {
-        this(generateRandomFileName(), type);
-    }
-
     // 生成随机文件名
     private static String generateRandomFileName() {
-        return com.github.catvod.utils.Path.root() + "/TV/list/" + UUID.randomUUID().toString() + ".list";
+        return ListCleaner.dir() + "/" + UUID.randomUUID().toString() + ".list";
     }
 
     /**
-     * 初始化文件位置和大小
+     * 初始化文件位置和大小：优先读取 .idx 索引，索引不存在或和文件长度对不上时，
+     * 直接在原始字节里找换行符（二进制编码按长度前缀）重建，不解码成字符串
      */
     private void initializeLinePositions() {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+        if (!loadIndex()) {
+            scanLinePositions();
+            saveIndex(0);
+        }
+        this.size = lineCount;
+    }
+
+    private void scanLinePositions() {
+        lineCount = 0;
+        if (!codec.isText()) {
+            scanRecordPositions();
+            return;
+        }
+        // 只读扫描，不修改数据文件；最后一行没有换行时也算一行，追加前再补换行
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            long length = channel.size();
+            if (length > 0) {
+                addPosition(0);
+            }
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            byte[] bytes = chunk.array();
             long position = 0;
-            String line;
-            while ((line = reader.readLine()) != null) {
-                linePositions.add(position);
-                position += line.getBytes(StandardCharsets.UTF_8).length
-                        + System.lineSeparator().getBytes(StandardCharsets.UTF_8).length; // 更新位置
+            int read;
+            while ((read = channel.read(chunk)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] == '\n' && position + i + 1 < length) {
+                        addPosition(position + i + 1);
+                    }
+                }
+                position += read;
+                chunk.clear();
             }
-            this.size = linePositions.size();
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize line positions", e);
         }
     }
 
+    private void scanRecordPositions() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            long length = file.length();
+            long position = 0;
+            while (position + 4 <= length) {
+                int recordLength = in.readInt();
+                if (position + 4 + recordLength > length) {
+                    break; // 最后一条没写完整，丢弃
+                }
+                addPosition(position);
+                in.skipBytes(recordLength);
+                position += 4 + recordLength;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to initialize record positions", e);
+        }
+    }
+
+    /**
+     * 读取 .idx 索引
+     *
+     * @return 索引可用时返回 true
+     */
+    private boolean loadIndex() {
+        if (!indexFile.exists() || indexFile.length() < 8) {
+            return false;
+        }
+        try (FileChannel channel = new FileInputStream(indexFile).getChannel()) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) > 0) ;
+            data.flip();
+            if (data.getLong() != file.length()) {
+                return false;
+            }
+            int count = data.remaining() / 8;
+            linePositions = new long[Math.max(count, 1024)];
+            data.asLongBuffer().get(linePositions, 0, count);
+            lineCount = count;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 把新增的行位置追加到 .idx 索引，最后再写入文件长度；
+     * 中途失败时长度对不上，下次打开会重新扫描
+     *
+     * @param from 从第几行开始追加
+     */
+    private void saveIndex(int from) {
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() != 8 + (long) from * 8) {
+                from = 0;
+                channel.truncate(0);
+            }
+            ByteBuffer data = ByteBuffer.allocate((lineCount - from) * 8);
+            data.asLongBuffer().put(linePositions, from, lineCount - from);
+            long position = 8 + (long) from * 8;
+            while (data.hasRemaining()) position += channel.write(data, position);
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putLong(0, file.length());
+            channel.write(header, 0);
+        } catch (IOException e) {
+            indexFile.delete();
+        }
+    }
+
+    private void addPosition(long position) {
+        long[] positions = linePositions;
+        int count = lineCount;
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+            linePositions = positions;
+        }
+        positions[count] = position;
+        lineCount = count + 1;
+    }
+
+    /**
+     * 文本文件最后一行没有换行时补上，之后追加的行不会接在最后一行上
+     *
+     * @param out 追加写入的通道
+     * @return 补上的字节数
+     */
+    private int terminateLastLine(FileChannel out) throws IOException {
+        long length = out.size();
+        if (!codec.isText() || length == 0) {
+            return 0;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel in = new FileInputStream(file).getChannel()) {
+            if (in.read(last, length - 1) != 1 || last.get(0) == '\n') {
+                return 0;
+            }
+        }
+        out.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        return 1;
+    }
+
     @Override
     public int size() {
         return size;
@@ -99,31 +258,7 @@ public class FileBasedList<T> implements List<T> {
 
     @Override
     public Iterator<T> iterator() {
-        try {
-            flushBuffer();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
-            return new Iterator<T>() {
-                private String nextLine = reader.readLine(); // 读取第一行
-
-                @Override
-                public boolean hasNext() {
-                    return nextLine != null;
-                }
-
-                @Override
-                public T next() {
-                    try {
-                        T item = gson.fromJson(nextLine, type); // 反序列化为对象
-                        nextLine = reader.readLine(); // 读取下一行
-                        return item;
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to read next line", e);
-                    }
-                }
-            };
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to initialize iterator", e);
-        }
+        return Spliterators.iterator(spliterator());
     }
 
     @Override
@@ -145,7 +280,7 @@ public class FileBasedList<T> implements List<T> {
     }
 
     @Override
-    public boolean add(T t) {
+    public synchronized boolean add(T t) {
         buffer.add(t);
         if (buffer.size() >= BUFFER_SIZE) {
             flushBuffer();
@@ -157,26 +292,45 @@ public class FileBasedList<T> implements List<T> {
     /**
      * 将缓存中的数据批量写入文件
      */
-    private void flushBuffer() {
+    private synchronized void flushBuffer() {
         if (buffer.size() == 0) {
             return;
         }
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
-            long currentPosition = file.length(); // 获取当前文件长度作为初始位置
+        segments = null;
+        int from = lineCount;
+        ensureParent();
+        try (FileOutputStream stream = new FileOutputStream(file, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024))) {
+            long currentPosition = file.length() + terminateLastLine(stream.getChannel()); // 获取当前文件长度作为初始位置
 
             for (T item : buffer) {
-                linePositions.add(currentPosition); // 记录新行的起始位置
-                String json = gson.toJson(item) + "\n";
-                writer.write(json);
-                currentPosition += json.getBytes(StandardCharsets.UTF_8).length; // 更新当前位置
+                addPosition(currentPosition); // 记录新行的起始位置
+                byte[] bytes = codec.encode(item);
+                if (codec.isText()) {
+                    out.write(bytes);
+                    out.write('\n');
+                } else {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                currentPosition += bytes.length + (codec.isText() ? 1 : 4); // 按实际写入的字节数更新位置
             }
 
-            writer.flush(); // 最终确保所有缓冲的数据都已写入文件
+            out.flush(); // 最终确保所有缓冲的数据都已写入文件
             buffer.clear(); // 清空缓存
         } catch (IOException e) {
             throw new RuntimeException("Failed to write to file", e);
         }
+        if (handle == null) {
+            saveIndex(from); // 临时列表不会重新打开，不需要索引
+        }
+    }
+
+    private void ensureParent() {
+        File parentDir = file.getParentFile();
+        if (handle != null && parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
     }
 
     @Override
@@ -213,27 +367,44 @@ public class FileBasedList<T> implements List<T> {
      * @param other 另一个 FileBasedList
      * @return 是否合并成功
      */
-    private boolean mergeFileBasedList(FileBasedList<? extends T> other) {
+    private synchronized boolean mergeFileBasedList(FileBasedList<? extends T> other) {
+        if (other.codec.getClass() != codec.getClass() || other.lineCount == 0) {
+            // 编码不同不能直接拷贝字节，对方还没有落盘时也不必为它创建文件，逐条添加
+            for (T item : other) {
+                add(item);
+            }
+            return true;
+        }
         flushBuffer(); // 确保当前缓存数据写入文件
         if (other != this) {
             other.flushBuffer(); // 确保另一个文件的缓存数据写入文件
         }
-    
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
-             BufferedReader reader = new BufferedReader(
-                     new InputStreamReader(new FileInputStream(other.file), StandardCharsets.UTF_8))) {
-    
-            long currentPosition = file.length(); // 获取当前文件长度作为初始位置
-            String line;
-            while ((line = reader.readLine()) != null) {
-                linePositions.add(currentPosition); // 记录新行的起始位置
-                writer.write(line); // 将另一文件的内容逐行写入当前文件
-                writer.newLine(); // 写入换行符
-                currentPosition += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().getBytes(StandardCharsets.UTF_8).length; // 更新当前位置
+        segments = null;
+        ensureParent();
+
+        // 直接按字节拷贝文件，行位置由对方的索引平移得到，不再逐行解码
+        try (FileChannel out = new FileOutputStream(file, true).getChannel();
+             FileChannel in = new FileInputStream(other.file).getChannel()) {
+            long base = out.size() + terminateLastLine(out); // 获取当前文件长度作为初始位置
+            long length = in.size();
+            long[] positions = other.linePositions;
+            int count = other.lineCount;
+            int from = lineCount;
+            long copied = 0;
+            while (copied < length) {
+                copied += in.transferTo(copied, length - copied, out);
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (codec.isText() && length > 0 && in.read(last, length - 1) == 1 && last.get(0) != '\n') {
+                out.write(ByteBuffer.wrap(new byte[]{'\n'})); // 对方文件末尾没有换行时补上
+            }
+            for (int i = 0; i < count; i++) {
+                addPosition(base + positions[i]); // 记录新行的起始位置
+            }
+            size += count; // 更新列表大小
+            if (handle == null) {
+                saveIndex(from);
             }
-            writer.flush(); // 确保所有数据写入文件
-            size += other.size(); // 更新列表大小
             return true;
         } catch (IOException e) {
             throw new RuntimeException("Failed to merge FileBasedList files", e);
@@ -256,44 +427,161 @@ public class FileBasedList<T> implements List<T> {
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
         flushBuffer();
+        segments = null;
+        ensureParent();
         try (FileWriter writer = new FileWriter(file)) {
             writer.write(""); // 清空文件内容
             size = 0; // 大小重置为 0
-            linePositions.clear(); // 清空文件位置记录
+            lineCount = 0; // 清空文件位置记录
             buffer.clear(); // 清空缓存
+            indexFile.delete();
+            synchronized (blocks) {
+                blocks.clear(); // 清空读缓存
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to clear file", e);
         }
     }
 
+    /**
+     * 读取记录，先查读缓存。已写入文件的记录不会再变，追加写入不影响已缓存的块，
+     * 只有 clear 时清空缓存。
+     * 同一条记录多次 get 可能返回同一个对象，调用方不要修改它，要改先复制一份
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public T get(int index) {
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
         }
-        flushBuffer();
-        try (
-                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-                InputStreamReader reader = new InputStreamReader(new FileInputStream(randomAccessFile.getFD()), StandardCharsets.UTF_8);
-                BufferedReader bufferedReader = new BufferedReader(reader)
-        ) {
-            long position = linePositions.get(index); // 获取指定行的起始位置
-            randomAccessFile.seek(position); // 跳转到指定位置
-
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                return gson.fromJson(line, type); // 反序列化为对象
+        if (index >= lineCount) {
+            synchronized (this) {
+                if (index >= lineCount) {
+                    return buffer.get(index - lineCount); // 还在写缓存里，不必为了读而落盘
+                }
             }
+        }
+        Integer block = index / BLOCK_SIZE;
+        int slot = index % BLOCK_SIZE;
+        synchronized (blocks) {
+            Object[] items = blocks.get(block);
+            if (items != null && items[slot] != null) {
+                return (T) items[slot];
+            }
+        }
+        T item = codec.decode(readRecord(index)); // 反序列化为对象
+        synchronized (blocks) {
+            Object[] items = blocks.get(block);
+            if (items == null) {
+                items = new Object[BLOCK_SIZE];
+                blocks.put(block, items);
+            }
+            items[slot] = item;
+        }
+        return item;
+    }
 
-            throw new IllegalStateException("Failed to read the specified line");
-
+    /**
+     * 从内存映射中读取一条记录，结尾由下一条的起始位置确定，不需要逐字节查找换行符；
+     * 映射失败或记录跨越了映射段时退回到按文件读取
+     *
+     * @param index 行号
+     * @return 去掉换行或长度前缀后的记录字节
+     */
+    private byte[] readRecord(int index) {
+        int count = lineCount;
+        long[] positions = linePositions;
+        long position = positions[index];
+        MappedByteBuffer[] maps = map();
+        long end = index + 1 < count ? positions[index + 1] : maps != null ? mappedLength : file.length();
+        if (maps != null) {
+            int k = (int) (position / SEGMENT_SIZE);
+            int from = (int) (position - k * SEGMENT_SIZE);
+            int to = (int) (end - k * SEGMENT_SIZE);
+            if (k < maps.length && to <= maps[k].limit()) {
+                ByteBuffer segment = maps[k];
+                if (codec.isText()) {
+                    while (to > from && (segment.get(to - 1) == '\n' || segment.get(to - 1) == '\r')) to--;
+                } else {
+                    to = from + 4 + segment.getInt(from);
+                    from += 4;
+                }
+                byte[] bytes = new byte[to - from];
+                ByteBuffer dup = segment.duplicate();
+                dup.position(from);
+                dup.get(bytes);
+                return bytes;
+            }
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(position); // 跳转到指定位置
+            if (!codec.isText()) {
+                byte[] bytes = new byte[randomAccessFile.readInt()];
+                randomAccessFile.readFully(bytes);
+                return bytes;
+            }
+            byte[] bytes = new byte[(int) (end - position)];
+            randomAccessFile.readFully(bytes);
+            int length = bytes.length;
+            while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) length--;
+            return Arrays.copyOf(bytes, length);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read from file", e);
         }
     }
 
+    /**
+     * 只读映射整个文件，多个线程共用同一组映射，不再各自打开文件
+     *
+     * @return 映射失败时返回 null
+     */
+    private MappedByteBuffer[] map() {
+        MappedByteBuffer[] maps = segments;
+        if (maps != null) {
+            return maps;
+        }
+        synchronized (this) {
+            if (segments == null) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                    long length = channel.size();
+                    maps = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+                    for (int k = 0; k < maps.length; k++) {
+                        long from = k * SEGMENT_SIZE;
+                        maps[k] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(length - from, SEGMENT_SIZE + SEGMENT_OVERLAP));
+                    }
+                    mappedLength = length;
+                    segments = maps;
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+            return segments;
+        }
+    }
+
+    /**
+     * 释放缓存和映射，之后不能再使用。指定路径的列表先把写缓存落盘，重新打开时不丢数据；
+     * 临时列表直接删除文件
+     */
+    @Override
+    public synchronized void close() {
+        if (handle == null) {
+            flushBuffer();
+        }
+        buffer.clear();
+        segments = null;
+        size = 0;
+        lineCount = 0;
+        synchronized (blocks) {
+            blocks.clear();
+        }
+        if (handle != null) {
+            handle.clean();
+        }
+    }
+
     @Override
     public T set(int index, T element) {
         throw new UnsupportedOperationException("Set operation is not supported.");
@@ -353,9 +641,30 @@ public class FileBasedList<T> implements List<T> {
         return subList;
     }
 
+    @Override
+    public Spliterator<T> spliterator() {
+        return new RangeSpliterator<>(0, size, this::read);
+    }
+
+    /**
+     * 不经过读缓存读取，已落盘的从文件解码，还在写缓存里的直接返回
+     */
+    private T read(int index) {
+        if (index >= lineCount) {
+            synchronized (this) {
+                if (index >= lineCount) {
+                    return buffer.get(index - lineCount);
+                }
+            }
+        }
+        return codec.decode(readRecord(index));
+    }
+
+    /**
+     * 可按行号切分的流，parallel() 后各线程分别解码自己的区段
+     */
     public Stream<T> stream() {
-        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
-        return StreamSupport.stream(spliterator, false); // 不支持并行流
+        return StreamSupport.stream(spliterator(), false);
     }
 
     public static class IndexedItem<T> {
@@ -377,35 +686,62 @@ public class FileBasedList<T> implements List<T> {
     }
 
     public Stream<IndexedItem<T>> indexedStream() {
-        try {
-            flushBuffer();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
-            Spliterator<IndexedItem<T>> spliterator = Spliterators
-                    .spliteratorUnknownSize(new Iterator<IndexedItem<T>>() {
-                        private String nextLine = reader.readLine(); // 读取第一行
-                        private int currentLineNumber = 0; // 当前行号
-
-                        @Override
-                        public boolean hasNext() {
-                            return nextLine != null;
-                        }
-
-                        @Override
-                        public IndexedItem<T> next() {
-                            try {
-                                T item = gson.fromJson(nextLine, type); // 反序列化为对象
-                                IndexedItem<T> indexedItem = new IndexedItem<>(item, currentLineNumber);
-                                nextLine = reader.readLine(); // 读取下一行
-                                currentLineNumber++; // 行号增加
-                                return indexedItem;
-                            } catch (IOException e) {
-                                throw new RuntimeException("Failed to read next line", e);
-                            }
-                        }
-                    }, Spliterator.ORDERED);
-            return StreamSupport.stream(spliterator, false); // 不支持并行流
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to initialize indexed stream", e);
+        return StreamSupport.stream(new RangeSpliterator<>(0, size,
+                index -> new IndexedItem<>(read(index), index)), false);
+    }
+
+    /**
+     * 按行号区间切分的 Spliterator，借助行位置索引 O(1) 定位，切分后大小仍然精确
+     */
+    private static class RangeSpliterator<R> implements Spliterator<R> {
+
+        private static final int MIN_SPLIT = 512; // 太小的区段不再切分
+
+        private final IntFunction<R> reader;
+        private int from;
+        private final int to;
+
+        RangeSpliterator(int from, int to, IntFunction<R> reader) {
+            this.from = from;
+            this.to = to;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(reader.apply(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            for (; from < to; from++) {
+                action.accept(reader.apply(from));
+            }
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            int mid = (from + to) >>> 1;
+            if (mid - from < MIN_SPLIT) {
+                return null;
+            }
+            Spliterator<R> prefix = new RangeSpliterator<>(from, mid, reader);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
         }
     }
 }
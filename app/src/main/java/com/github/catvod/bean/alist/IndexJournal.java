@@ -0,0 +1,200 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 每日更新的增量日志，只追加，和基础快照放在同一目录。
+ * 记录的是原始索引行，按路径去重；基础快照换了版本后用 {@link #compact} 去掉新基础已有的行，
+ * 高水位行攒多了也会压缩掉。
+ *
+ * 文件格式（UTF-8 文本）：
+ * #base 基础快照版本
+ * 索引行...
+ * #mark 高水位，上次拉取的每日更新第一行，和下次拉取的第一行相同时说明没有新内容
+ */
+public class IndexJournal {
+
+    private static final String JOURNAL_FILE = "index.delta.txt";
+    private static final String DELTA_FILE = "index.delta";
+    private static final String BASE = "#base ";
+    private static final String MARK = "#mark ";
+    private static final int MAX_MARKS = 64; // 高水位行超过这个数就压缩日志
+
+    private final File file;
+    private final File deltaFile;
+    private final String baseVersion;
+    private final List<String> lines = new ArrayList<>();
+    private final Set<String> paths = new HashSet<>();
+    private String mark = "";
+    private int marks; // 文件里的高水位行数
+    private boolean rebased; // 日志属于旧的基础快照，需要 compact
+
+    private IndexJournal(File dir, String baseVersion) {
+        this.file = new File(dir, JOURNAL_FILE);
+        this.deltaFile = new File(dir, DELTA_FILE);
+        this.baseVersion = baseVersion;
+    }
+
+    /**
+     * 读取增量日志。日志属于别的基础版本时删除增量快照，日志行保留下来，
+     * 由调用方用 {@link #compact} 去掉新基础快照里已有的行
+     *
+     * @param dir         快照所在目录
+     * @param baseVersion 当前基础快照的版本
+     */
+    public static IndexJournal open(File dir, String baseVersion) {
+        IndexJournal journal = new IndexJournal(dir, baseVersion);
+        if (!journal.file.exists()) {
+            journal.deltaFile.delete();
+            return journal;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal.file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null || !line.startsWith(BASE)) {
+                journal.reset();
+                return journal;
+            }
+            if (!line.equals(BASE + baseVersion)) {
+                Logger.log("基础索引已更新，增量日志待压缩");
+                journal.rebased = true;
+                journal.deltaFile.delete();
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(MARK)) {
+                    journal.mark = line.substring(MARK.length());
+                    journal.marks++;
+                } else if (!line.isEmpty() && journal.paths.add(path(line))) {
+                    journal.lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            Logger.log("增量日志读取失败：" + e.getMessage());
+            journal.reset();
+        }
+        return journal;
+    }
+
+    private void reset() {
+        lines.clear();
+        paths.clear();
+        mark = "";
+        marks = 0;
+        file.delete();
+        deltaFile.delete();
+    }
+
+    /**
+     * 日志是不是还属于旧的基础快照
+     */
+    public boolean isRebased() {
+        return rebased;
+    }
+
+    /**
+     * 只保留 keep 接受的行，按当前基础版本重写日志，只留最后一个高水位。
+     * 先写临时文件再原子替换，中途失败时旧日志仍然完整
+     *
+     * @param keep 要保留的行
+     */
+    public void compact(Predicate<String> keep) throws IOException {
+        List<String> kept = new ArrayList<>();
+        for (String line : lines) {
+            if (keep.test(line)) kept.add(line);
+        }
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            writer.write(BASE + baseVersion + "\n");
+            for (String line : kept) writer.write(line + "\n");
+            if (!mark.isEmpty()) writer.write(MARK + mark + "\n");
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Logger.log("压缩增量日志：" + lines.size() + " -> " + kept.size() + "条");
+        if (kept.size() != lines.size()) {
+            deltaFile.delete();
+        }
+        lines.clear();
+        paths.clear();
+        for (String line : kept) {
+            lines.add(line);
+            paths.add(path(line));
+        }
+        marks = mark.isEmpty() ? 0 : 1;
+        rebased = false;
+    }
+
+    /**
+     * 索引行的路径部分，去掉开头的 ./ 和结尾的 /
+     */
+    public static String path(String line) {
+        int end = line.indexOf('#');
+        String path = end < 0 ? line : line.substring(0, end);
+        if (path.startsWith("./")) path = path.substring(2);
+        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return path;
+    }
+
+    public boolean contains(String path) {
+        return paths.contains(path);
+    }
+
+    public String getMark() {
+        return mark;
+    }
+
+    /**
+     * 已记录的索引行，按追加顺序
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public File getDeltaFile() {
+        return deltaFile;
+    }
+
+    /**
+     * 增量快照的版本：基础版本 + 行数，日志追加后旧的增量快照自然失效
+     */
+    public String getDeltaVersion() {
+        return baseVersion + "#" + lines.size();
+    }
+
+    /**
+     * 追加新行并更新高水位，高水位行攒多了时压缩日志
+     *
+     * @param fresh 去重后的新行
+     * @param mark  本次拉取的第一行
+     */
+    public void append(List<String> fresh, String mark) throws IOException {
+        if (rebased) {
+            throw new IllegalStateException("增量日志属于旧的基础快照，需要先压缩");
+        }
+        boolean created = !file.exists();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            if (created) {
+                writer.write(BASE + baseVersion + "\n");
+            }
+            for (String line : fresh) {
+                if (paths.add(path(line))) {
+                    lines.add(line);
+                    writer.write(line + "\n");
+                }
+            }
+            writer.write(MARK + mark + "\n");
+        }
+        this.mark = mark;
+        if (++marks > MAX_MARKS) {
+            compact(line -> true);
+        }
+    }
+}
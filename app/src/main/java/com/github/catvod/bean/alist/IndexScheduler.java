@@ -0,0 +1,102 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Logger;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地索引的后台调度，每个服务器一个任务：
+ * 启动时预热加载，之后定期拉取每日增量；基础索引超过陈旧期限后重新校验（远端没变化时只是一次条件请求）。
+ * 间隔带随机抖动，失败后按指数退避重试。
+ * 磁盘上已有快照时请求直接使用（先用旧数据），条件下载和重建在后台进行；
+ * 还没有快照时请求等第一次构建一段时间，超时后按没有本地索引处理，见 {@link XiaoyaLocalIndex}。
+ */
+public class IndexScheduler {
+
+    private static final long REFRESH_INTERVAL = 30 * 60 * 1000; // 增量刷新间隔
+    private static final long STALE_BUDGET = 6 * 60 * 60 * 1000; // 基础索引的陈旧期限，超过后重新校验
+    private static final long RETRY_DELAY = 60 * 1000; // 失败后的首次重试间隔，之后每次翻倍
+    private static final long MAX_RETRY_DELAY = 60 * 60 * 1000; // 重试间隔上限
+    private static final double JITTER = 0.1; // 间隔上下浮动 10%，多个服务器不会同时刷新
+
+    private static final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    private static final Random random = new Random();
+    private static ScheduledThreadPoolExecutor executor;
+
+    private static synchronized ScheduledThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "index-scheduler");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 登记一个盘所在的服务器并立即预热，同一服务器只登记一次
+     *
+     * @param drive 所属的盘
+     */
+    public static void schedule(Drive drive) {
+        if (drive == null || tasks.containsKey(drive.getServer())) {
+            return;
+        }
+        Task task = new Task(drive);
+        if (tasks.putIfAbsent(drive.getServer(), task) == null) {
+            executor().execute(task);
+        }
+    }
+
+    private static long jitter(long delay) {
+        return (long) (delay * (1 - JITTER + random.nextDouble() * JITTER * 2));
+    }
+
+    private static class Task implements Runnable {
+
+        private final Drive drive;
+        private long validated; // 基础索引最近一次条件下载成功的时间，0 表示还没有成功过
+        private int failures;
+
+        Task(Drive drive) {
+            this.drive = drive;
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.currentTimeMillis();
+            boolean ok;
+            try {
+                if (validated == 0) {
+                    ok = XiaoyaLocalIndex.load(drive);
+                    if (ok) validated = System.currentTimeMillis();
+                    if (ok) XiaoyaLocalIndex.refresh(drive);
+                } else if (startTime - validated > STALE_BUDGET) {
+                    ok = XiaoyaLocalIndex.revalidate(drive);
+                    if (ok) validated = System.currentTimeMillis();
+                } else {
+                    ok = XiaoyaLocalIndex.refresh(drive) >= 0;
+                }
+            } catch (RuntimeException e) {
+                Logger.log("索引调度失败：" + e.getMessage());
+                ok = false;
+            }
+            long delay;
+            if (ok) {
+                failures = 0;
+                delay = jitter(REFRESH_INTERVAL);
+            } else {
+                failures++;
+                delay = jitter(Math.min(RETRY_DELAY << Math.min(failures - 1, 16), MAX_RETRY_DELAY));
+            }
+            Logger.log("索引调度" + (ok ? "完成" : "失败") + "，耗时：" + (System.currentTimeMillis() - startTime) + "，下次：" + delay / 1000 + "秒后");
+            executor().schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
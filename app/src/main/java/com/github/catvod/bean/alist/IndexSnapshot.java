@@ -0,0 +1,522 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地索引的二进制快照，列式目录和片名索引一起落盘。
+ * 打开时直接内存映射，不再重新下载和解析，读取见 {@link VodCatalog}。
+ *
+ * 文件布局：
+ * 头部   magic, format, count, prefixCount, columnsOffset, gramOffset, metaOffset
+ * 字节区 所有字符串（short 长度 + UTF-8 字节），偏移 HEADER_SIZE 处固定是空串
+ * 列     parent, file, title, thumb, douban, remark int[count]（豆瓣 id 和原始评分文本也是字符串偏移），
+ *        rating float[count]（只用于排序和门槛），flags byte[count]（有海报的在前）
+ *        prefixes int[prefixCount]（父目录字符串偏移），names long[count]（片名 hash << 32 | 位置，升序）
+ * 二元组 片名和文件名的倒排索引，见 {@link NgramIndex}
+ * 元数据 快照版本（远端压缩包的 ETag/Last-Modified）
+ *
+ * 每日增量也写成一个小快照，用 {@link #merge} 接在基础快照前面，对外是一个整体。
+ */
+public class IndexSnapshot {
+
+    private static final int MAGIC = 0x58594958; // "XYIX"
+    private static final int FORMAT = 5;
+    private static final int HEADER_SIZE = 48;
+    private static final int ROW_SIZE = 29; // 每条记录的列宽：6 个 int、1 个 float、1 个字节
+
+    private final String version;
+    private final VodCatalog catalog;
+    private final LongBuffer names;
+    private final NgramIndex ngrams;
+    private final IndexSnapshot[] parts; // 合并快照的各部分，按目录顺序；单个快照为 null
+
+    private IndexSnapshot(String version, VodCatalog catalog, LongBuffer names, NgramIndex ngrams, IndexSnapshot[] parts) {
+        this.version = version;
+        this.catalog = catalog;
+        this.names = names;
+        this.ngrams = ngrams;
+        this.parts = parts;
+    }
+
+    /**
+     * 打开快照
+     *
+     * @param file    快照文件
+     * @param version 期望的版本，为 null 时不校验版本（例如远端不可达时沿用旧快照）
+     * @return 快照不存在、格式不对或版本不一致时返回 null
+     */
+    public static IndexSnapshot open(File file, String version) {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+                return null;
+            }
+            int count = buffer.getInt(8);
+            int prefixCount = buffer.getInt(12);
+            int columnsOffset = (int) buffer.getLong(16);
+            int gramOffset = (int) buffer.getLong(24);
+            int metaOffset = (int) buffer.getLong(32);
+            String snapshotVersion = VodCatalog.readString(buffer, metaOffset);
+            if (version != null && !version.equals(snapshotVersion)) {
+                return null;
+            }
+            int prefixOffset = align(columnsOffset + count * ROW_SIZE);
+            int namesOffset = align(prefixOffset + prefixCount * 4);
+            VodCatalog catalog = new VodCatalog(
+                    slice(buffer, 0, columnsOffset),
+                    slice(buffer, columnsOffset, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 4, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 8, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 12, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 16, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 20, count * 4).asIntBuffer(),
+                    slice(buffer, columnsOffset + count * 24, count * 4).asFloatBuffer(),
+                    slice(buffer, columnsOffset + count * 28, count),
+                    slice(buffer, prefixOffset, prefixCount * 4).asIntBuffer());
+            LongBuffer names = slice(buffer, namesOffset, count * 8).asLongBuffer();
+            int grams = buffer.getInt(gramOffset);
+            int postings = buffer.getInt(gramOffset + 4);
+            NgramIndex ngrams = new NgramIndex(
+                    slice(buffer, gramOffset + 8, grams * 4).asIntBuffer(),
+                    slice(buffer, gramOffset + 8 + grams * 4, (grams + 1) * 4).asIntBuffer(),
+                    slice(buffer, gramOffset + 12 + grams * 8, postings * 4).asIntBuffer());
+            return new IndexSnapshot(snapshotVersion, catalog, names, ngrams, null);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        return dup.slice();
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public VodCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * 换一个盘名前缀的视图，快照本身不变
+     *
+     * @param driveName 盘名
+     */
+    public IndexSnapshot named(String driveName) {
+        if (driveName.equals(catalog.getDriveName())) {
+            return this;
+        }
+        return new IndexSnapshot(version, catalog.named(driveName), names, ngrams, parts);
+    }
+
+    /**
+     * 把增量快照接在本快照前面，版本仍是本快照的版本
+     *
+     * @param delta 增量快照
+     */
+    public IndexSnapshot merge(IndexSnapshot delta) {
+        IndexSnapshot base = base();
+        VodCatalog merged = delta.catalog.concat(base.catalog).named(catalog.getDriveName());
+        return new IndexSnapshot(base.version, merged, null, null, new IndexSnapshot[]{delta, base});
+    }
+
+    /**
+     * 不含增量的基础快照
+     */
+    public IndexSnapshot base() {
+        return parts == null ? this : parts[parts.length - 1];
+    }
+
+    /**
+     * 是否已有这条记录
+     *
+     * @param id    不含盘名前缀的 vodId
+     * @param title 片名
+     */
+    public boolean contains(String id, String title) {
+        List<Integer> positions = new ArrayList<>();
+        collectByName(title, 0, positions);
+        for (int pos : positions) {
+            if (catalog.getId(pos).equals(id)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按片名精确查找
+     *
+     * @param name 片名
+     * @return 匹配的 Vod，按列表顺序
+     */
+    public List<Vod> findByName(String name) {
+        List<Integer> positions = new ArrayList<>();
+        collectByName(name, 0, positions);
+        List<Vod> vods = new ArrayList<>();
+        for (int pos : positions) vods.add(catalog.get(pos));
+        return vods;
+    }
+
+    /**
+     * @param offset 本快照在合并目录中的起始位置
+     */
+    private void collectByName(String name, int offset, List<Integer> positions) {
+        if (parts != null) {
+            for (IndexSnapshot part : parts) {
+                part.collectByName(name, offset, positions);
+                offset += part.catalog.size();
+            }
+            return;
+        }
+        int count = catalog.size();
+        long key = (long) name.hashCode() << 32;
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names.get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < count && (names.get(i) >>> 32) == (key >>> 32); i++) {
+            int pos = (int) names.get(i);
+            if (catalog.getTitle(pos).equals(name)) {
+                positions.add(offset + pos);
+            }
+        }
+    }
+
+    /**
+     * 子串搜索，多个关键词用空格分隔，须全部出现在片名或文件名中。
+     * 结果按匹配程度（片名完全相同 > 片名开头 > 片名包含 > 仅文件名包含）和豆瓣评分排序
+     *
+     * @param keyword 关键词
+     * @param limit   最多返回条数
+     */
+    public List<Vod> search(String keyword, int limit) {
+        List<String> terms = new ArrayList<>();
+        for (String term : keyword.trim().split("\\s+")) {
+            String normalized = NgramIndex.normalize(term);
+            if (!normalized.isEmpty()) terms.add(normalized);
+        }
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Hit> hits = new ArrayList<>();
+        collectHits(terms, 0, hits);
+        Collections.sort(hits);
+        List<Vod> vods = new ArrayList<>();
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            vods.add(catalog.get(hits.get(i).pos));
+        }
+        return vods;
+    }
+
+    /**
+     * @param offset 本快照在合并目录中的起始位置
+     */
+    private void collectHits(List<String> terms, int offset, List<Hit> hits) {
+        if (parts != null) {
+            for (IndexSnapshot part : parts) {
+                part.collectHits(terms, offset, hits);
+                offset += part.catalog.size();
+            }
+            return;
+        }
+        int[] candidates = null;
+        for (String term : terms) {
+            int[] found = ngrams.candidates(term);
+            candidates = candidates == null ? found : intersect(candidates, found);
+        }
+        String joined = String.join("", terms);
+        for (int pos : candidates) {
+            String name = NgramIndex.normalize(catalog.getTitle(pos));
+            String file = NgramIndex.normalize(catalog.getFileName(pos));
+            boolean inName = true;
+            boolean matched = true;
+            for (String term : terms) {
+                boolean hit = NgramIndex.contains(name, term);
+                inName &= hit;
+                matched &= hit || NgramIndex.contains(file, term);
+            }
+            if (!matched) continue;
+            int score = name.equals(joined) ? 3 : name.startsWith(terms.get(0)) && inName ? 2 : inName ? 1 : 0;
+            hits.add(new Hit(offset + pos, score, catalog.getRating(pos)));
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static class Hit implements Comparable<Hit> {
+
+        final int pos;
+        final int score;
+        final float rating;
+
+        Hit(int pos, int score, float rating) {
+            this.pos = pos;
+            this.score = score;
+            this.rating = rating;
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            if (score != o.score) return Integer.compare(o.score, score);
+            if (rating != o.rating) return Float.compare(o.rating, rating);
+            return Integer.compare(pos, o.pos);
+        }
+    }
+
+    /**
+     * 快照写入器，先写到临时文件，完成后再原子替换，写到一半的快照不会被打开。
+     * 字符串边解析边写入字节区，各列先留在内存里，提交时按分组顺序排好再写出。
+     * 记录按 {@link Segment} 分组，多个来源可以并发写入。
+     */
+    public static class Writer implements Closeable {
+
+        private final File file;
+        private final File tmpFile;
+        private final DataOutputStream out;
+        private final List<Segment> segments = new ArrayList<>();
+        private final Map<String, Integer> prefixIds = new HashMap<>();
+        private int[] prefixes = new int[1024];
+        private int position = HEADER_SIZE;
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            this.tmpFile = new File(file.getPath() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024));
+            out.write(new byte[HEADER_SIZE]);
+            writeString("");
+        }
+
+        public synchronized Segment segment() {
+            Segment segment = new Segment();
+            segments.add(segment);
+            return segment;
+        }
+
+        /**
+         * 父目录去重，相同目录下的记录共用同一个字符串
+         */
+        private int intern(String prefix) throws IOException {
+            Integer id = prefixIds.get(prefix);
+            if (id != null) {
+                return id;
+            }
+            id = prefixIds.size();
+            if (id == prefixes.length) prefixes = Arrays.copyOf(prefixes, id * 2);
+            prefixes[id] = writeString(prefix);
+            prefixIds.put(prefix, id);
+            return id;
+        }
+
+        private int writeString(String value) throws IOException {
+            if (value.isEmpty() && position > HEADER_SIZE) {
+                return HEADER_SIZE;
+            }
+            int offset = position;
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 0xFFFF);
+            out.writeShort(length);
+            out.write(bytes, 0, length);
+            position += 2 + length;
+            return offset;
+        }
+
+        private void pad() throws IOException {
+            while (position != align(position)) {
+                out.writeByte(0);
+                position++;
+            }
+        }
+
+        /**
+         * 写入各列、索引和版本并提交快照
+         *
+         * @param version 快照版本
+         */
+        public synchronized void commit(String version) throws IOException {
+            int size = 0;
+            for (Segment segment : segments) size += segment.count;
+            int[] parent = new int[size], file = new int[size], title = new int[size], thumb = new int[size], douban = new int[size], remark = new int[size];
+            float[] rating = new float[size];
+            byte[] flags = new byte[size];
+            long[] sorted = new long[size];
+            int n = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                boolean pic = pass == 0;
+                for (Segment segment : segments) {
+                    for (int i = 0; i < segment.count; i++) {
+                        if (((segment.flags[i] & VodCatalog.FLAG_PIC) != 0) != pic) continue;
+                        parent[n] = segment.parent[i];
+                        file[n] = segment.file[i];
+                        title[n] = segment.title[i];
+                        thumb[n] = segment.thumb[i];
+                        douban[n] = segment.douban[i];
+                        remark[n] = segment.remark[i];
+                        rating[n] = segment.rating[i];
+                        flags[n] = segment.flags[i];
+                        sorted[n] = ((long) segment.hash[i] << 32) | n;
+                        n++;
+                    }
+                }
+            }
+            Arrays.sort(sorted);
+
+            pad();
+            int columnsOffset = position;
+            for (int[] column : new int[][]{parent, file, title, thumb, douban, remark}) {
+                for (int value : column) out.writeInt(value);
+            }
+            for (float value : rating) out.writeFloat(value);
+            out.write(flags);
+            position += size * ROW_SIZE;
+            pad();
+            int prefixCount = prefixIds.size();
+            for (int i = 0; i < prefixCount; i++) out.writeInt(prefixes[i]);
+            position += prefixCount * 4;
+            pad();
+            for (long name : sorted) out.writeLong(name);
+            position += size * 8;
+
+            // 二元组索引要读回字节区里的片名，先把缓冲刷到临时文件再映射
+            out.flush();
+            int gramOffset = position;
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "r"); FileChannel channel = raf.getChannel()) {
+                MappedByteBuffer arena = channel.map(FileChannel.MapMode.READ_ONLY, 0, columnsOffset);
+                position += new NgramIndex.Builder().write(size, pos -> new String[]{
+                        VodCatalog.readString(arena, title[pos]), VodCatalog.readString(arena, file[pos])}, out);
+            }
+            int metaOffset = position;
+            byte[] bytes = (version == null ? "" : version).getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+            out.close();
+
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+                raf.writeInt(MAGIC);
+                raf.writeInt(FORMAT);
+                raf.writeInt(size);
+                raf.writeInt(prefixCount);
+                raf.writeLong(columnsOffset);
+                raf.writeLong(gramOffset);
+                raf.writeLong(metaOffset);
+            }
+            // 原子替换，任何时刻磁盘上都有一份完整的快照；已经映射旧快照的读者不受影响
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            tmpFile.delete();
+        }
+
+        /**
+         * 一个来源的记录，只能由一个线程写入
+         */
+        public class Segment {
+
+            private int[] parent = new int[1024], file = new int[1024], title = new int[1024];
+            private int[] thumb = new int[1024], douban = new int[1024], remark = new int[1024], hash = new int[1024];
+            private float[] rating = new float[1024];
+            private byte[] flags = new byte[1024];
+            private int count;
+
+            /**
+             * 把 Vod 拆成各列，vodId 拆成父目录、文件名和 ~soufile/~soulist 标记
+             */
+            public void add(Vod vod) throws IOException {
+                String id = vod.getVodIdWithoutDrivePrefix();
+                int end = id.lastIndexOf('/');
+                int start = id.lastIndexOf('/', end - 1) + 1;
+                String name = id.substring(start, end);
+                String vodName = vod.getVodName();
+                String pic = vod.getVodPic();
+                if (count == parent.length) grow();
+                synchronized (Writer.this) {
+                    parent[count] = intern(id.substring(0, start));
+                    file[count] = writeString(name);
+                    title[count] = vodName.equals(name) ? file[count] : writeString(vodName);
+                    thumb[count] = writeString(pic);
+                    douban[count] = writeString(vod.doubanInfo.getId());
+                    remark[count] = writeString(vod.doubanInfo.getRating());
+                }
+                rating[count] = parseFloat(vod.doubanInfo.getRating());
+                flags[count] = (byte) ((id.endsWith("/~soufile") ? VodCatalog.FLAG_FILE : 0) | (pic.isEmpty() ? 0 : VodCatalog.FLAG_PIC));
+                hash[count] = vodName.hashCode();
+                count++;
+            }
+
+            private void grow() {
+                int length = parent.length * 2;
+                parent = Arrays.copyOf(parent, length);
+                file = Arrays.copyOf(file, length);
+                title = Arrays.copyOf(title, length);
+                thumb = Arrays.copyOf(thumb, length);
+                douban = Arrays.copyOf(douban, length);
+                remark = Arrays.copyOf(remark, length);
+                hash = Arrays.copyOf(hash, length);
+                rating = Arrays.copyOf(rating, length);
+                flags = Arrays.copyOf(flags, length);
+            }
+
+            /**
+             * 丢弃本分组已写入的记录，用于来源中断后从头重新解析，
+             * 丢弃的字符串只留在字节区，不进入各列
+             */
+            public void reset() {
+                count = 0;
+            }
+        }
+
+        private static float parseFloat(String value) {
+            try {
+                return value == null || value.isEmpty() ? Float.NaN : Float.parseFloat(value);
+            } catch (NumberFormatException e) {
+                return Float.NaN;
+            }
+        }
+    }
+}
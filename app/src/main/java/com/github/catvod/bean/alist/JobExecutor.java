@@ -0,0 +1,339 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.net.OkHttp;
+import com.github.catvod.spider.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+
+/**
+ * 请求共用的有界线程池，代替每个请求新建一个无界线程池。
+ * 每批任务有自己的截止时间，到期没完成的任务会被取消，任务里正在进行的网络请求一并中断。
+ * 队列满时新任务直接拒绝，按超时处理，不占用调用线程，也不会无限堆积线程。
+ * {@link #stream} 按完成顺序交付结果，到软期限先返回，慢的任务在后台继续执行到硬期限。
+ */
+public class JobExecutor {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int QUEUE_SIZE = 64;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong completed = new AtomicLong();
+    private static final AtomicLong timedOut = new AtomicLong();
+    private static final AtomicLong waitTime = new AtomicLong(); // 累计排队时间
+    private static final AtomicLong runTime = new AtomicLong(); // 累计执行时间
+    private static final AtomicLong maxLatency = new AtomicLong();
+    private static ThreadPoolExecutor executor;
+    private static ScheduledThreadPoolExecutor watchdog;
+
+    /**
+     * 任务结果的回调，每个任务恰好回调一次
+     */
+    public interface Listener<T> {
+
+        /**
+         * @param result 任务的结果，任务失败或超时时为 null
+         */
+        void onResult(T result);
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                Thread thread = new Thread(r, "job-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, (r, e) -> reject((Tracked<?>) r));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * 队列满时拒绝任务：立即取消，调用方照常按超时处理，截止时间不受影响
+     */
+    private static void reject(Tracked<?> task) {
+        task.rejected = true;
+        task.cancel(false);
+        timedOut.incrementAndGet();
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor watchdog() {
+        if (watchdog == null) {
+            watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "job-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return watchdog;
+    }
+
+    /**
+     * 执行一批任务，最多等到截止时间
+     *
+     * @param jobs    任务
+     * @param timeout 整批任务的期限，毫秒
+     * @return 按提交顺序排列的已完成任务的结果，超时或出错的任务不在其中
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> jobs, long timeout) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeout;
+        List<Tracked<T>> tasks = new ArrayList<>(jobs.size());
+        for (Callable<T> job : jobs) {
+            Tracked<T> task = new Tracked<>(job, null);
+            tasks.add(task);
+            submitted.incrementAndGet();
+            executor().execute(task);
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        int expired = 0;
+        try {
+            for (Tracked<T> task : tasks) {
+                try {
+                    results.add(task.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+                } catch (TimeoutException | CancellationException e) {
+                    task.abort();
+                    if (!task.rejected) expired++; // 被拒绝的任务已经计入超时
+                } catch (ExecutionException e) {
+                    Logger.log("任务失败：" + e.getCause());
+                }
+            }
+        } finally {
+            for (Tracked<T> task : tasks) {
+                if (!task.isDone()) task.abort();
+            }
+        }
+        if (expired > 0) {
+            timedOut.addAndGet(expired);
+            Logger.log("任务超时" + expired + "/" + tasks.size() + "个，耗时：" + (System.currentTimeMillis() - startTime) + "，" + stats());
+        }
+        return results;
+    }
+
+    /**
+     * 执行一批任务，同时最多执行 parallelism 个，完成一个再提交下一个，不占着线程池的线程排队；
+     * 每次提交前检查截止时间，到期后剩下的任务不再提交
+     *
+     * @param jobs        任务
+     * @param parallelism 同时执行的任务数
+     * @param timeout     整批任务的期限，毫秒
+     * @return 按提交顺序排列的已完成任务的结果，超时、出错或没有提交的任务不在其中
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> jobs, int parallelism, long timeout) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeout;
+        BlockingQueue<Tracked<T>> completion = new LinkedBlockingQueue<>();
+        List<Tracked<T>> tasks = new ArrayList<>(jobs.size());
+        int running = 0;
+        int expired = 0;
+        try {
+            while (tasks.size() < jobs.size() || running > 0) {
+                while (running < parallelism && tasks.size() < jobs.size() && System.currentTimeMillis() < deadline) {
+                    Tracked<T> task = new Tracked<>(jobs.get(tasks.size()), completion);
+                    tasks.add(task);
+                    submitted.incrementAndGet();
+                    running++;
+                    executor().execute(task);
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (running == 0 || wait <= 0 || completion.poll(wait, TimeUnit.MILLISECONDS) == null) break;
+                running--;
+            }
+        } finally {
+            for (Tracked<T> task : tasks) {
+                if (task.isDone()) continue;
+                task.abort();
+                expired++;
+            }
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Tracked<T> task : tasks) {
+            if (task.isCancelled()) continue;
+            try {
+                results.add(task.get());
+            } catch (ExecutionException e) {
+                Logger.log("任务失败：" + e.getCause());
+            }
+        }
+        int skipped = jobs.size() - tasks.size();
+        if (expired + skipped > 0) {
+            timedOut.addAndGet(expired);
+            Logger.log("任务超时" + expired + "个，未提交" + skipped + "个，共" + jobs.size() + "个，耗时：" + (System.currentTimeMillis() - startTime) + "，" + stats());
+        }
+        return results;
+    }
+
+    /**
+     * 执行一批任务，按完成顺序把结果交给 listener。
+     * 到软期限就返回（一个结果都没有时最多等到硬期限），之前完成的任务在调用线程里回调；
+     * 没完成的任务在后台继续执行，完成时在工作线程里回调，到硬期限还没完成的取消并回调 null。
+     *
+     * @param jobs        任务
+     * @param softTimeout 软期限，毫秒
+     * @param hardTimeout 硬期限，毫秒
+     * @param listener    结果回调
+     * @return 返回时还没完成的任务数
+     */
+    public static <T> int stream(List<? extends Callable<T>> jobs, long softTimeout, long hardTimeout, Listener<T> listener) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        BlockingQueue<Tracked<T>> completion = new LinkedBlockingQueue<>();
+        List<Tracked<T>> tasks = new ArrayList<>(jobs.size());
+        for (Callable<T> job : jobs) {
+            Tracked<T> task = new Tracked<>(job, completion);
+            tasks.add(task);
+            submitted.incrementAndGet();
+            executor().execute(task);
+        }
+        int received = 0;
+        boolean any = false;
+        while (received < tasks.size()) {
+            long wait = startTime + (any ? softTimeout : hardTimeout) - System.currentTimeMillis();
+            Tracked<T> task = wait > 0 ? completion.poll(wait, TimeUnit.MILLISECONDS) : completion.poll();
+            if (task == null) break;
+            if (!task.claim()) continue;
+            T result = task.value();
+            any |= result != null;
+            received++;
+            listener.onResult(result);
+        }
+        int pending = tasks.size() - received;
+        if (pending > 0) {
+            // 已经回调过的任务 claim 不到，不会重复回调
+            for (Tracked<T> task : tasks) task.handoff(listener);
+            watchdog().schedule(() -> {
+                int expired = 0;
+                for (Tracked<T> task : tasks) {
+                    if (task.isDone()) continue;
+                    task.abort();
+                    expired++;
+                }
+                if (expired > 0) {
+                    timedOut.addAndGet(expired);
+                    Logger.log("任务超时" + expired + "/" + tasks.size() + "个，" + stats());
+                }
+            }, Math.max(0, startTime + hardTimeout - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+        Logger.log("任务" + received + "/" + tasks.size() + "个按时完成，耗时：" + (System.currentTimeMillis() - startTime));
+        return pending;
+    }
+
+    /**
+     * 当前排队的任务数
+     */
+    public static int getQueueDepth() {
+        return executor().getQueue().size();
+    }
+
+    /**
+     * 线程池的运行统计：排队数、活动线程数、完成和超时个数、平均排队和执行时间、最长耗时
+     */
+    public static String stats() {
+        long done = Math.max(1, completed.get());
+        return "队列：" + getQueueDepth() + "，活动：" + executor().getActiveCount() + "，提交：" + submitted.get() + "，完成：" + completed.get() + "，超时：" + timedOut.get() + "，平均排队：" + waitTime.get() / done + "，平均执行：" + runTime.get() / done + "，最长：" + maxLatency.get();
+    }
+
+    private static void record(long wait, long run) {
+        completed.incrementAndGet();
+        waitTime.addAndGet(wait);
+        runTime.addAndGet(run);
+        long latency = wait + run;
+        long max;
+        while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) ;
+    }
+
+    /**
+     * 记录执行期间发出的网络请求，取消时一并中断
+     */
+    private static class Tracked<T> extends FutureTask<T> {
+
+        private final List<Call> calls = new ArrayList<>();
+        private final long created = System.currentTimeMillis();
+        private final BlockingQueue<Tracked<T>> completion; // 完成时放入的队列，可以为 null
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile Listener<T> listener; // 移交后台后的回调
+        volatile boolean rejected; // 队列满时被拒绝，没有执行
+
+        Tracked(Callable<T> job, BlockingQueue<Tracked<T>> completion) {
+            super(job);
+            this.completion = completion;
+        }
+
+        @Override
+        protected void done() {
+            if (completion != null) completion.add(this);
+            deliver();
+        }
+
+        /**
+         * 取得回调的权利，保证每个任务只回调一次
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void handoff(Listener<T> listener) {
+            this.listener = listener;
+            if (isDone()) deliver();
+        }
+
+        private void deliver() {
+            Listener<T> listener = this.listener;
+            if (listener != null && claim()) listener.onResult(value());
+        }
+
+        /**
+         * 已完成任务的结果，失败或取消时返回 null
+         */
+        T value() {
+            try {
+                return get();
+            } catch (CancellationException e) {
+                return null;
+            } catch (ExecutionException e) {
+                Logger.log("任务失败：" + e.getCause());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.currentTimeMillis();
+            List<Call> previous = OkHttp.tracking(); // 工作线程上为 null，其他线程上执行时恢复原来的记录
+            OkHttp.track(calls);
+            try {
+                super.run();
+            } finally {
+                OkHttp.track(previous);
+                record(startTime - created, System.currentTimeMillis() - startTime);
+            }
+        }
+
+        void abort() {
+            cancel(true);
+            synchronized (calls) {
+                for (Call call : calls) call.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.catvod.bean.alist;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 行编码，兼容之前写出的列表文件
+ */
+public class JsonCodec<T> implements RecordCodec<T> {
+
+    private final Gson gson = new Gson();
+    private final Class<T> type;
+
+    public JsonCodec(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), type);
+    }
+
+    @Override
+    public boolean isText() {
+        return true;
+    }
+}
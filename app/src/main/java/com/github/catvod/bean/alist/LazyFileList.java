@@ -1,102 +1,354 @@
 package com.github.catvod.bean.alist;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import com.github.catvod.spider.*;
 
-public class LazyFileList extends AbstractList<String> {
+/**
+ * 按行只读访问文本文件。
+ * 第一次访问时建立行起始位置索引（优先读取同目录的 .idx，格式和 {@link FileBasedList} 相同），
+ * 之后 size 和 get 都是 O(1)，读取用 FileChannel 按位置读，多线程同时访问也是安全的；
+ * 读取线程被中断（如任务被取消）会关闭共用的通道，其他线程会重新打开后接着读。
+ * 索引建好后不再改变，close 只关闭文件，之后的读取抛出 IllegalStateException
+ */
+public class LazyFileList extends AbstractList<String> implements RandomAccess, Closeable {
+    private static final int CHUNK_SIZE = 64 * 1024; // 扫描和区间读取的块大小
     private final String filePath;
-    private int size = -1;
-    private BufferedReader reader; // 维护一个 BufferedReader 实例
-    private int currentIndex = -1; // 记录当前读取的行号
-    private String currentLine = null;
+    private final File file;
+    private final File indexFile; // 行位置索引，文件长度 + 每行起始位置
+    private volatile long[] linePositions; // 每行的起始位置，建立索引前为 null
+    private int lineCount;
+    private long length; // 建索引时的文件长度
+    private volatile FileChannel channel; // 共用的通道，被中断关闭后重新打开
+    private volatile boolean closed;
 
     public LazyFileList(String filePath) {
         this.filePath = filePath;
+        this.file = new File(filePath);
+        this.indexFile = new File(filePath + ".idx");
     }
 
-    @Override
-    public String get(int index) {
-        if (index < 0) {
-            throw new IndexOutOfBoundsException("索引不能为负数: " + index);
+    /**
+     * 建立或读取行位置索引，只做一次
+     */
+    private void ensureIndex() {
+        if (linePositions != null) {
+            return;
         }
-        try {
-            if (reader == null) {
-                // 第一次调用时初始化 BufferedReader
-                reader = new BufferedReader(new FileReader(filePath));
-                currentIndex = -1;
+        synchronized (this) {
+            if (linePositions != null) {
+                return;
             }
-            // 如果请求的行号小于当前行号，需要重置读取器
-            if (index < currentIndex) {
-                reader.close();
-                reader = new BufferedReader(new FileReader(filePath));
-                currentIndex = -1;
+            if (closed) {
+                throw new IllegalStateException("文件列表已关闭: " + filePath);
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                channel = new RandomAccessFile(file, "r").getChannel();
+                length = channel.size();
+                if (!loadIndex()) {
+                    scanLinePositions();
+                    saveIndex();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("无法打开文件: " + filePath, e);
             }
-            // 从当前行号继续读取，直到目标行
-            while (currentIndex < index) {
-                currentLine = reader.readLine();
-                if (currentLine == null) {
-                    throw new IndexOutOfBoundsException("文件行数不足: " + index);
+            Logger.log("文件行索引" + lineCount + "行，耗时：" + (System.currentTimeMillis() - startTime));
+        }
+    }
+
+    /**
+     * 在原始字节里找换行符，不解码成字符串
+     */
+    private void scanLinePositions() throws IOException {
+        long[] positions = new long[1024];
+        int count = 0;
+        if (length > 0) {
+            positions[count++] = 0;
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        byte[] bytes = chunk.array();
+        long position = 0;
+        int read;
+        while (position < length && (read = channel.read(chunk, position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n' && position + i + 1 < length) {
+                    if (count == positions.length) positions = Arrays.copyOf(positions, count * 2);
+                    positions[count++] = position + i + 1;
                 }
-                currentIndex++;
             }
-            return currentLine; // 返回目标行的内容
+            position += read;
+            chunk.clear();
+        }
+        lineCount = count;
+        linePositions = positions;
+    }
+
+    /**
+     * 读取 .idx 索引
+     *
+     * @return 索引可用时返回 true
+     */
+    private boolean loadIndex() {
+        if (!indexFile.exists() || indexFile.length() < 8) {
+            return false;
+        }
+        try (FileChannel index = new FileInputStream(indexFile).getChannel()) {
+            ByteBuffer data = ByteBuffer.allocate((int) index.size());
+            while (data.hasRemaining() && index.read(data) > 0) ;
+            data.flip();
+            if (data.getLong() != length) {
+                return false;
+            }
+            int count = data.remaining() / 8;
+            long[] positions = new long[count];
+            data.asLongBuffer().get(positions);
+            lineCount = count;
+            linePositions = positions;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 保存 .idx 索引，目录不可写时只留在内存里
+     */
+    private void saveIndex() {
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw"); FileChannel index = raf.getChannel()) {
+            index.truncate(0);
+            ByteBuffer data = ByteBuffer.allocate(8 + lineCount * 8);
+            data.putLong(length);
+            data.asLongBuffer().put(linePositions, 0, lineCount);
+            data.rewind(); // 行位置是通过视图写入的，从头开始写出，包括文件长度
+            while (data.hasRemaining()) index.write(data);
         } catch (IOException e) {
-            throw new RuntimeException("读取文件失败: " + filePath, e);
+            indexFile.delete();
         }
     }
 
+    private long lineEnd(int index) {
+        return index + 1 < lineCount ? linePositions[index + 1] : length;
+    }
+
     @Override
-    public Iterator<String> iterator() {
-        try {
-            // 每次迭代时重新打开文件
-            BufferedReader iteratorReader = new BufferedReader(new FileReader(filePath));
-            return new Iterator<String>() {
-                private String nextLine;
-
-                @Override
-                public boolean hasNext() {
-                    try {
-                        nextLine = iteratorReader.readLine();
-                        return nextLine != null;
-                    } catch (IOException e) {
-                        throw new RuntimeException("读取文件失败", e);
-                    }
-                }
+    public String get(int index) {
+        ensureIndex();
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+        }
+        long start = linePositions[index];
+        ByteBuffer bytes = ByteBuffer.allocate((int) (lineEnd(index) - start));
+        read(bytes, start);
+        return decode(bytes.array(), 0, bytes.position());
+    }
 
-                @Override
-                public String next() {
-                    return nextLine;
+    /**
+     * 从 position 开始读满 dst，读到文件末尾为止
+     */
+    private void read(ByteBuffer dst, long position) {
+        int start = dst.position();
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("文件列表已关闭: " + filePath);
+            }
+            FileChannel current = channel;
+            try {
+                while (dst.hasRemaining() && current.read(dst, position + dst.position() - start) > 0) ;
+                return;
+            } catch (ClosedChannelException e) {
+                if (closed) {
+                    throw new IllegalStateException("文件列表已关闭: " + filePath, e);
+                }
+                // 有线程读取时被中断，通道随之关闭；换一个新通道，被中断的线程自己不再重试
+                reopen(current);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("读取被中断: " + filePath, e);
                 }
-            };
+            } catch (IOException e) {
+                throw new RuntimeException("读取文件失败: " + filePath, e);
+            }
+        }
+    }
+
+    /**
+     * 通道还是 stale 时打开新的通道，多个线程同时发现时只打开一次
+     */
+    private synchronized void reopen(FileChannel stale) {
+        if (closed || channel != stale) {
+            return;
+        }
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
         } catch (IOException e) {
             throw new RuntimeException("无法打开文件: " + filePath, e);
         }
     }
 
+    /**
+     * 去掉行尾的换行符后解码
+     */
+    private static String decode(byte[] bytes, int from, int to) {
+        if (to > from && bytes[to - 1] == '\n') to--;
+        if (to > from && bytes[to - 1] == '\r') to--;
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
     @Override
     public int size() {
-        if (size != -1) {
-            return size;
+        ensureIndex();
+        return lineCount;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return iterator(0, size());
+    }
+
+    /**
+     * 顺序读取 [from, to) 区间的行，按块读取，不逐行访问文件。
+     * 不同区间可以交给不同线程同时读取
+     *
+     * @param from 起始行（含）
+     * @param to   结束行（不含）
+     */
+    public Iterator<String> iterator(int from, int to) {
+        ensureIndex();
+        if (from < 0 || to > lineCount || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is out of bounds");
+        }
+        return new RangeIterator(from, to);
+    }
+
+    private class RangeIterator implements Iterator<String> {
+
+        private int next;
+        private final int to;
+        private byte[] chunk = new byte[0];
+        private long chunkStart; // chunk[0] 在文件中的位置
+        private int chunkLength;
+
+        RangeIterator(int from, int to) {
+            this.next = from;
+            this.to = to;
         }
-        try (BufferedReader sizeReader = new BufferedReader(new FileReader(filePath))) {
-            int count = 0;
-            while (sizeReader.readLine() != null) {
-                count++;
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public String next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
             }
-            size = count;
-            return size;
-        } catch (IOException e) {
-            throw new RuntimeException("读取文件失败: " + filePath, e);
+            long start = linePositions[next];
+            long end = lineEnd(next);
+            if (start < chunkStart || end > chunkStart + chunkLength) {
+                fill(start, end);
+            }
+            next++;
+            return decode(chunk, (int) (start - chunkStart), (int) (end - chunkStart));
+        }
+
+        /**
+         * 从 start 开始读一块，至少包含当前行，最多读到区间末尾
+         */
+        private void fill(long start, long end) {
+            long rangeEnd = lineEnd(to - 1);
+            int size = (int) Math.max(end - start, Math.min(CHUNK_SIZE, rangeEnd - start));
+            if (chunk.length < size) chunk = new byte[size];
+            ByteBuffer dst = ByteBuffer.wrap(chunk, 0, size);
+            read(dst, start);
+            chunkStart = start;
+            chunkLength = dst.position();
         }
     }
 
+    /**
+     * 按行号二分切分，每段用区间迭代器读取，parallelStream() 时各线程互不干扰
+     */
     @Override
-    protected void finalize() throws Throwable {
-        if (reader != null) {
-            reader.close(); // 确保资源被释放
+    public Spliterator<String> spliterator() {
+        return new RangeSpliterator(0, size());
+    }
+
+    private class RangeSpliterator implements Spliterator<String> {
+
+        private static final int MIN_SPLIT = 1024; // 少于 1024 行不再切分
+
+        private int from;
+        private final int to;
+        private Iterator<String> iterator;
+
+        RangeSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
         }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (from >= to) {
+                return false;
+            }
+            if (iterator == null) {
+                iterator = new RangeIterator(from, to);
+            }
+            from++;
+            action.accept(iterator.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            if (iterator != null || to - from < MIN_SPLIT) {
+                return null;
+            }
+            int mid = (from + to) >>> 1;
+            Spliterator<String> prefix = new RangeSpliterator(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * 关闭文件。索引保留，其他线程正在进行的读取不会遇到空的索引，只会得到 IllegalStateException
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        close(); // 确保资源被释放
         super.finalize();
     }
 }
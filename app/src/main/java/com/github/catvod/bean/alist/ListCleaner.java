@@ -0,0 +1,144 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Logger;
+
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link FileBasedList} 临时文件的生命周期管理。
+ * 每个临时列表登记一个虚引用，close 时立即删除文件；没有 close 的列表被回收后由后台线程删除。
+ * 启动时清理上次遗留的文件，目录总大小超过配额时从最旧的无主文件开始删除。
+ */
+public class ListCleaner {
+
+    private static final long QUOTA = 512L * 1024 * 1024; // 临时目录的磁盘配额
+    private static final long STALE_AGE = 60 * 60 * 1000; // 超过一小时没有登记的文件视为遗留
+    private static final long QUOTA_INTERVAL = 60 * 1000; // 配额检查间隔
+
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private static final Set<Handle> handles = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static Thread thread;
+    private static long lastQuotaCheck;
+
+    public static File dir() {
+        return new File(com.github.catvod.utils.Path.root(), "TV/list");
+    }
+
+    /**
+     * 登记临时列表
+     *
+     * @param owner 列表本身，被回收后删除文件
+     * @param files 要删除的文件
+     */
+    public static Handle register(Object owner, File... files) {
+        start();
+        Handle handle = new Handle(owner, files);
+        handles.add(handle);
+        if (System.currentTimeMillis() - lastQuotaCheck > QUOTA_INTERVAL) {
+            enforceQuota();
+        }
+        return handle;
+    }
+
+    private static synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(() -> {
+            while (true) {
+                try {
+                    ((Handle) queue.remove()).clean();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "list-cleaner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 启动时调用：删除遗留的临时文件，再检查配额
+     */
+    public static void sweep() {
+        long startTime = System.currentTimeMillis();
+        Set<String> live = livePaths();
+        int count = 0;
+        for (File file : listFiles()) {
+            if (!live.contains(file.getPath()) && startTime - file.lastModified() > STALE_AGE && file.delete()) {
+                count++;
+            }
+        }
+        Logger.log("清理临时列表" + count + "个，耗时：" + (System.currentTimeMillis() - startTime));
+        enforceQuota();
+    }
+
+    /**
+     * 目录总大小超过配额时，按修改时间从旧到新删除没有登记的文件
+     */
+    public static synchronized void enforceQuota() {
+        lastQuotaCheck = System.currentTimeMillis();
+        List<File> files = listFiles();
+        long total = 0;
+        for (File file : files) total += file.length();
+        if (total <= QUOTA) {
+            return;
+        }
+        Set<String> live = livePaths();
+        Collections.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= QUOTA) break;
+            if (live.contains(file.getPath())) continue;
+            long length = file.length();
+            if (file.delete()) total -= length;
+        }
+        if (total > QUOTA) {
+            Logger.log("临时列表超出配额：" + total);
+        }
+    }
+
+    private static List<File> listFiles() {
+        File[] files = dir().listFiles((d, name) -> name.endsWith(".list") || name.endsWith(".list.idx"));
+        return files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static Set<String> livePaths() {
+        Set<String> live = new HashSet<>();
+        for (Handle handle : handles) {
+            for (File file : handle.files) live.add(file.getPath());
+        }
+        return live;
+    }
+
+    /**
+     * 临时文件的句柄，不持有列表本身
+     */
+    public static class Handle extends PhantomReference<Object> {
+
+        private final File[] files;
+
+        private Handle(Object owner, File[] files) {
+            super(owner, queue);
+            this.files = files;
+        }
+
+        /**
+         * 删除文件并注销，可以重复调用
+         */
+        public void clean() {
+            if (handles.remove(this)) {
+                for (File file : files) file.delete();
+            }
+            clear();
+        }
+    }
+}
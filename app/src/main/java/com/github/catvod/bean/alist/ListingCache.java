@@ -0,0 +1,148 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Init;
+import com.github.catvod.spider.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 目录列表缓存，按 服务器+路径 存放：
+ * 新鲜期内直接返回；过了新鲜期但还在陈旧期限内时先返回旧列表，同时在后台重新拉取；
+ * 同一路径同时只有一个请求在拉取，其余请求等它的结果；
+ * 拉取时的 token 和当前 token 不同（重新登录过）的条目视为没有。拉取失败不缓存。
+ */
+public class ListingCache<V> {
+
+    private final long ttl;
+    private final long staleTtl;
+    private final int capacity;
+    private final Map<String, Listing<V>> map;
+    private final Map<String, FutureTask<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 拉取目录列表
+     */
+    public interface Fetcher<V> {
+
+        V fetch() throws Exception;
+    }
+
+    /**
+     * @param ttl      新鲜期，毫秒
+     * @param staleTtl 陈旧期限，超过后必须等重新拉取，毫秒
+     * @param capacity 最多保留的目录数
+     */
+    public ListingCache(long ttl, long staleTtl, int capacity) {
+        this.ttl = ttl;
+        this.staleTtl = staleTtl;
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<String, Listing<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Listing<V>> eldest) {
+                return size() > ListingCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 取目录列表，没有或已过陈旧期限时拉取
+     *
+     * @param key     服务器+路径
+     * @param token   当前的 token
+     * @param fetcher 拉取方法
+     */
+    public V get(String key, String token, Fetcher<V> fetcher) throws Exception {
+        Listing<V> listing;
+        synchronized (this) {
+            listing = map.get(key);
+        }
+        if (listing != null && listing.token.equals(token)) {
+            long age = System.currentTimeMillis() - listing.time;
+            if (age <= ttl) {
+                return listing.value;
+            }
+            if (age <= staleTtl) {
+                if (!loading.containsKey(key)) Init.execute(() -> refresh(key, token, fetcher));
+                return listing.value;
+            }
+        }
+        return load(key, token, fetcher);
+    }
+
+    /**
+     * 放入拉取好的列表，如遍历子目录时顺带拉到的
+     */
+    public synchronized void put(String key, String token, V value) {
+        map.put(key, new Listing<>(value, token, System.currentTimeMillis()));
+    }
+
+    /**
+     * 移除一个服务器的全部条目，如重新登录后。
+     * 只匹配该服务器本身和它下面的路径，http://host:5678 不会连带 http://host:56789
+     *
+     * @param server 服务器地址
+     */
+    public synchronized void invalidate(String server) {
+        Iterator<String> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (key.equals(server) || key.startsWith(server + "/")) it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    private void refresh(String key, String token, Fetcher<V> fetcher) {
+        try {
+            load(key, token, fetcher);
+        } catch (Exception e) {
+            Logger.log("刷新目录失败：" + key + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * 同一 key 只有第一个调用者拉取，其余调用者等同一个任务
+     */
+    private V load(String key, String token, Fetcher<V> fetcher) throws Exception {
+        FutureTask<V> task = new FutureTask<>(() -> {
+            V value = fetcher.fetch();
+            put(key, token, value);
+            return value;
+        });
+        FutureTask<V> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static class Listing<V> {
+
+        final V value;
+        final String token;
+        final long time;
+
+        Listing(V value, String token, long time) {
+            this.value = value;
+            this.token = token;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.catvod.bean.alist;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+/**
+ * 片名和文件名的二元组倒排索引，支持子串和多关键词（AND）查询。
+ * 文本先归一化（转小写，只保留字母和数字，中文按字切分），
+ * 每两个相邻字符组成一个 int 键，倒排表是升序的列表位置。
+ * 倒排命中只是候选，调用方还需要用 {@link #contains} 校验一遍。
+ *
+ * 存储布局：keys int[n]（升序），starts int[n + 1]，postings int[total]
+ */
+public class NgramIndex {
+
+    private final IntBuffer keys;
+    private final IntBuffer starts;
+    private final IntBuffer postings;
+    private final int count;
+
+    public NgramIndex(IntBuffer keys, IntBuffer starts, IntBuffer postings) {
+        this.keys = keys;
+        this.starts = starts;
+        this.postings = postings;
+        this.count = keys.limit();
+    }
+
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    public static boolean contains(String normalized, String term) {
+        return normalized.contains(term);
+    }
+
+    private static int gram(String normalized, int i) {
+        return (normalized.charAt(i) << 16) | normalized.charAt(i + 1);
+    }
+
+    /**
+     * 查询一个归一化后的关键词
+     *
+     * @param term 关键词
+     * @return 候选列表位置，升序
+     */
+    public int[] candidates(String term) {
+        if (term.length() == 1) {
+            return candidates(term.charAt(0));
+        }
+        int grams = term.length() - 1;
+        int[] from = new int[grams];
+        int[] to = new int[grams];
+        int shortest = 0;
+        for (int i = 0; i < grams; i++) {
+            int slot = find(gram(term, i));
+            if (slot < 0) return new int[0];
+            from[i] = starts.get(slot);
+            to[i] = starts.get(slot + 1);
+            if (to[i] - from[i] < to[shortest] - from[shortest]) shortest = i;
+        }
+        int[] result = new int[to[shortest] - from[shortest]];
+        int n = 0;
+        outer:
+        for (int p = from[shortest]; p < to[shortest]; p++) {
+            int pos = postings.get(p);
+            for (int i = 0; i < grams; i++) {
+                if (i == shortest) continue;
+                int hit = search(from[i], to[i], pos);
+                if (hit < 0) continue outer;
+                from[i] = hit; // 倒排表升序，下次从这里继续找
+            }
+            result[n++] = pos;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * 单字关键词：合并所有以该字开头或结尾的二元组的倒排表
+     */
+    private int[] candidates(char c) {
+        int[] result = new int[64];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int key = keys.get(i);
+            if ((char) (key >>> 16) != c && (char) key != c) continue;
+            int from = starts.get(i), to = starts.get(i + 1);
+            if (n + to - from > result.length) result = Arrays.copyOf(result, Math.max(result.length * 2, n + to - from));
+            for (int p = from; p < to; p++) result[n++] = postings.get(p);
+        }
+        Arrays.sort(result, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) if (unique == 0 || result[unique - 1] != result[i]) result[unique++] = result[i];
+        return Arrays.copyOf(result, unique);
+    }
+
+    private int find(int gram) {
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = keys.get(mid);
+            if (key < gram) low = mid + 1;
+            else if (key > gram) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int search(int low, int high, int value) {
+        high--;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int v = postings.get(mid);
+            if (v < value) low = mid + 1;
+            else if (v > value) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * 两遍扫描构建：第一遍统计每个二元组的出现次数，第二遍按位置顺序填充倒排表，
+     * 全程只用 int 数组，不产生装箱对象
+     */
+    public static class Builder {
+
+        private int[] slots = new int[1 << 16];
+        private int[] counts = new int[1 << 16];
+        private int used;
+        private int[] grams = new int[64];
+
+        /**
+         * @param size  记录数
+         * @param texts 按列表位置返回要索引的文本
+         * @param out   输出流
+         * @return 写入的字节数
+         */
+        public long write(int size, IntFunction<String[]> texts, DataOutputStream out) throws IOException {
+            long total = 0;
+            for (int pos = 0; pos < size; pos++) {
+                int n = collect(texts.apply(pos));
+                for (int i = 0; i < n; i++) counts[slot(grams[i])]++;
+                total += n;
+            }
+
+            int[] sortedKeys = new int[used];
+            int k = 0;
+            for (int slot = 0; slot < slots.length; slot++) if (slots[slot] != 0) sortedKeys[k++] = slots[slot];
+            Arrays.sort(sortedKeys);
+            int[] cursor = new int[used + 1];
+            for (int i = 0; i < used; i++) {
+                int slot = slot(sortedKeys[i]);
+                cursor[i + 1] = cursor[i] + counts[slot];
+                counts[slot] = i; // 之后 counts 存的是有序下标
+            }
+            int[] sortedStarts = cursor.clone();
+
+            int[] postings = new int[(int) total];
+            for (int pos = 0; pos < size; pos++) {
+                int n = collect(texts.apply(pos));
+                for (int i = 0; i < n; i++) postings[cursor[counts[slot(grams[i])]]++] = pos;
+            }
+
+            out.writeInt(used);
+            out.writeInt(postings.length);
+            for (int key : sortedKeys) out.writeInt(key);
+            for (int start : sortedStarts) out.writeInt(start);
+            for (int pos : postings) out.writeInt(pos);
+            return 8 + (long) used * 8 + 4 + (long) postings.length * 4;
+        }
+
+        private int collect(String[] texts) {
+            int n = 0;
+            for (String text : texts) {
+                String normalized = normalize(text);
+                for (int i = 0; i + 1 < normalized.length(); i++) {
+                    if (n == grams.length) grams = Arrays.copyOf(grams, n * 2);
+                    grams[n++] = gram(normalized, i);
+                }
+            }
+            Arrays.sort(grams, 0, n);
+            int unique = 0;
+            for (int i = 0; i < n; i++) if (unique == 0 || grams[unique - 1] != grams[i]) grams[unique++] = grams[i];
+            return unique;
+        }
+
+        private int slot(int gram) {
+            int mask = slots.length - 1;
+            int slot = hash(gram) & mask;
+            while (slots[slot] != 0 && slots[slot] != gram) slot = (slot + 1) & mask;
+            if (slots[slot] == 0) {
+                slots[slot] = gram;
+                if (++used * 2 > slots.length) {
+                    grow();
+                    return slot(gram);
+                }
+            }
+            return slot;
+        }
+
+        private static int hash(int gram) {
+            int h = gram * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private void grow() {
+            int[] oldSlots = slots;
+            int[] oldCounts = counts;
+            slots = new int[oldSlots.length * 2];
+            counts = new int[oldSlots.length * 2];
+            used = 0;
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] == 0) continue;
+                int slot = hash(oldSlots[i]) & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = oldSlots[i];
+                counts[slot] = oldCounts[i];
+                used++;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+/**
+ * {@link FileBasedList} 的记录编码。
+ * 文本编码每条记录一行，以换行结尾；二进制编码每条记录前面写 int 长度
+ *
+ * @param <T> 记录类型
+ */
+public interface RecordCodec<T> {
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    boolean isText();
+
+    /**
+     * 临时列表的默认编码，Vod 用二进制，其他类型用 JSON
+     */
+    @SuppressWarnings("unchecked")
+    static <T> RecordCodec<T> forType(Class<T> type) {
+        if (type == Vod.class) {
+            return (RecordCodec<T>) new VodCodec();
+        }
+        return new JsonCodec<>(type);
+    }
+}
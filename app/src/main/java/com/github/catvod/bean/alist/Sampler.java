@@ -0,0 +1,135 @@
+package com.github.catvod.bean.alist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.RandomAccess;
+
+/**
+ * 随机抽样。
+ * 能随机访问的列表在下标空间里做部分洗牌（只洗前 k 个位置，只记录换过的位置），时间和内存只和 k 有关；
+ * 只能顺序读的来源（如文件列表）用蓄水池抽样，只读一遍。
+ * 同一个种子抽出的结果相同，翻页时可以重建同一份随机结果。
+ */
+public class Sampler {
+
+    private final Random random;
+
+    public Sampler() {
+        this(new Random());
+    }
+
+    public Sampler(long seed) {
+        this(new Random(seed));
+    }
+
+    public Sampler(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * 从 [0, n) 中不重复地抽 k 个下标
+     *
+     * @param n 总数
+     * @param k 抽取个数，大于 n 时按 n 处理
+     * @return 抽中的下标，按抽取顺序
+     */
+    public int[] sample(int n, int k) {
+        k = Math.min(k, n);
+        int[] picked = new int[k];
+        // 不展开整个下标数组：没记录的位置 j 上就是 j，位置 i 用过之后不会再被读到，不用记录
+        Map<Integer, Integer> swapped = new HashMap<>(k * 2);
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            Integer atJ = swapped.get(j);
+            Integer atI = swapped.remove(i);
+            picked[i] = atJ == null ? j : atJ;
+            swapped.put(j, atI == null ? i : atI);
+        }
+        return picked;
+    }
+
+    /**
+     * 蓄水池抽样，只顺序读一遍来源
+     *
+     * @param source 来源
+     * @param k      抽取个数
+     * @return 抽中的元素，按在来源中的先后顺序
+     */
+    public <T> Sample<T> reservoir(Iterator<T> source, int k) {
+        int[] positions = new int[k];
+        Object[] items = new Object[k];
+        int seen = 0;
+        while (source.hasNext()) {
+            T item = source.next();
+            int slot = seen < k ? seen : random.nextInt(seen + 1);
+            if (slot < k) {
+                positions[slot] = seen;
+                items[slot] = item;
+            }
+            seen++;
+        }
+        int n = Math.min(k, seen);
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) keys[i] = ((long) positions[i] << 32) | i;
+        Arrays.sort(keys);
+        Sample<T> sample = new Sample<>(n);
+        for (long key : keys) sample.add(items[(int) key]);
+        return sample;
+    }
+
+    /**
+     * 从列表中抽 k 个元素
+     *
+     * @param source    列表
+     * @param k         抽取个数
+     * @param keepOrder 为 true 时保持在列表中的先后顺序，否则是随机顺序
+     */
+    public <T> List<T> pick(List<T> source, int k, boolean keepOrder) {
+        if (!(source instanceof RandomAccess)) {
+            Sample<T> sample = reservoir(source.iterator(), k);
+            if (!keepOrder) shuffle(sample.items);
+            return sample.items;
+        }
+        int[] indexes = sample(source.size(), k);
+        if (keepOrder) Arrays.sort(indexes);
+        List<T> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) result.add(source.get(index));
+        return result;
+    }
+
+    /**
+     * 原地打乱（Fisher-Yates）
+     */
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    /**
+     * 抽样结果
+     */
+    public static class Sample<T> {
+
+        private final List<T> items;
+
+        Sample(int capacity) {
+            this.items = new ArrayList<>(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(Object item) {
+            items.add((T) item);
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+    }
+}
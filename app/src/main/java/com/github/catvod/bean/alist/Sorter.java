@@ -1,16 +1,30 @@
 package com.github.catvod.bean.alist;
 
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
+/**
+ * 文件列表排序。
+ * 每个条目只计算一次排序键：日期解析成毫秒，名称拆成文字段和数字段，
+ * 文字段用中文排序规则（拼音序）生成 CollationKey，数字段按数值比较（第2集排在第10集前面）。
+ */
 public class Sorter implements Comparator<Item> {
 
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
     private final String type;
     private final String order;
+    private Collator collator; // 只有按名称排序时才创建
 
     public static void sort(String type, String order, List<Item> items) {
-        Collections.sort(items, new Sorter(type, order));
+        new Sorter(type, order).sort(items);
     }
 
     public Sorter(String type, String order) {
@@ -18,12 +32,50 @@ public class Sorter implements Comparator<Item> {
         this.order = order;
     }
 
+    /**
+     * 先给每个条目算好排序键再排序，排序是稳定的，键相同时保持原顺序。
+     * 未知的排序方式和原来一样交给 {@link #compare} 排序
+     *
+     * @param items 条目，原地排序
+     */
+    public void sort(List<Item> items) {
+        if (!type.equals("name") && !type.equals("size") && !type.equals("date")) {
+            Collections.sort(items, this);
+            return;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
+        long now = System.currentTimeMillis();
+        Keyed[] keyed = new Keyed[items.size()];
+        for (int i = 0; i < keyed.length; i++) {
+            Item item = items.get(i);
+            switch (type) {
+                case "name":
+                    keyed[i] = new Keyed(item, 0, nameKey(item.getName()));
+                    break;
+                case "size":
+                    keyed[i] = new Keyed(item, item.getSize(), null);
+                    break;
+                default:
+                    keyed[i] = new Keyed(item, parseDate(format, item.getModified(), now), null);
+                    break;
+            }
+        }
+        Comparator<Keyed> comparator = type.equals("name")
+                ? (a, b) -> a.name.compareTo(b.name)
+                : (a, b) -> Long.compare(a.number, b.number);
+        Arrays.sort(keyed, order.equals("asc") ? comparator : comparator.reversed());
+        for (int i = 0; i < keyed.length; i++) {
+            items.set(i, keyed[i].item);
+        }
+    }
+
     @Override
     public int compare(Item o1, Item o2) {
         boolean asc = order.equals("asc");
         switch (type) {
             case "name":
-                return asc ? o1.getName().compareTo(o2.getName()) : o2.getName().compareTo(o1.getName());
+                int c = nameKey(o1.getName()).compareTo(nameKey(o2.getName()));
+                return asc ? c : -c;
             case "size":
                 return asc ? Long.compare(o1.getSize(), o2.getSize()) : Long.compare(o2.getSize(), o1.getSize());
             case "date":
@@ -32,4 +84,106 @@ public class Sorter implements Comparator<Item> {
                 return -1;
         }
     }
+
+    /**
+     * 解析失败时和 {@link Item#getDate()} 一样按当前时间处理
+     */
+    private static long parseDate(SimpleDateFormat format, String modified, long now) {
+        try {
+            return format.parse(modified).getTime();
+        } catch (Exception e) {
+            return now;
+        }
+    }
+
+    private NameKey nameKey(String name) {
+        List<Object> parts = new ArrayList<>();
+        int i = 0;
+        while (i < name.length()) {
+            int start = i;
+            boolean digit = isDigit(name.charAt(i));
+            while (i < name.length() && isDigit(name.charAt(i)) == digit) i++;
+            String part = name.substring(start, i);
+            parts.add(digit ? new Digits(part) : collator().getCollationKey(part));
+        }
+        return new NameKey(name, parts.toArray());
+    }
+
+    private Collator collator() {
+        if (collator == null) collator = Collator.getInstance(Locale.CHINA);
+        return collator;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static class Keyed {
+
+        final Item item;
+        final long number;
+        final NameKey name;
+
+        Keyed(Item item, long number, NameKey name) {
+            this.item = item;
+            this.number = number;
+            this.name = name;
+        }
+    }
+
+    /**
+     * 名称的排序键：文字段和数字段交替，数字段排在文字段前面，全部相同时按原字符串比较
+     */
+    private static class NameKey implements Comparable<NameKey> {
+
+        private final String raw;
+        private final Object[] parts;
+
+        NameKey(String raw, Object[] parts) {
+            this.raw = raw;
+            this.parts = parts;
+        }
+
+        @Override
+        public int compareTo(NameKey o) {
+            int n = Math.min(parts.length, o.parts.length);
+            for (int i = 0; i < n; i++) {
+                Object a = parts[i], b = o.parts[i];
+                int c;
+                if (a instanceof Digits && b instanceof Digits) {
+                    c = ((Digits) a).compareTo((Digits) b);
+                } else if (a instanceof CollationKey && b instanceof CollationKey) {
+                    c = ((CollationKey) a).compareTo((CollationKey) b);
+                } else {
+                    c = a instanceof Digits ? -1 : 1;
+                }
+                if (c != 0) return c;
+            }
+            if (parts.length != o.parts.length) return Integer.compare(parts.length, o.parts.length);
+            return raw.compareTo(o.raw);
+        }
+    }
+
+    /**
+     * 任意长度的数字段，去掉前导零后先比长度再逐位比较
+     */
+    private static class Digits implements Comparable<Digits> {
+
+        private final String digits;
+        private final int length; // 含前导零的长度，数值相同时前导零少的在前
+
+        Digits(String text) {
+            int start = 0;
+            while (start < text.length() - 1 && text.charAt(start) == '0') start++;
+            this.digits = text.substring(start);
+            this.length = text.length();
+        }
+
+        @Override
+        public int compareTo(Digits o) {
+            if (digits.length() != o.digits.length()) return Integer.compare(digits.length(), o.digits.length());
+            int c = digits.compareTo(o.digits);
+            return c != 0 ? c : Integer.compare(length, o.length);
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.spider.Logger;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 先放内存、超过阈值才落盘的列表。
+ * 条数不超过阈值时就是一个 ArrayList，没有任何文件读写；
+ * 超过阈值时把已有数据连同后续数据一起转存到临时 {@link FileBasedList}。
+ */
+public class SpillList<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+    public static final int DEFAULT_THRESHOLD = 10000; // 默认的落盘阈值
+
+    private final Class<T> type;
+    private final int threshold;
+    private List<T> items;
+    private FileBasedList<T> spilled;
+
+    public SpillList(Class<T> type) {
+        this(type, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param type      元素类型，落盘时用于选择编码
+     * @param threshold 内存中最多保留的条数
+     */
+    public SpillList(Class<T> type, int threshold) {
+        this.type = type;
+        this.threshold = threshold;
+        this.items = new ArrayList<>();
+    }
+
+    /**
+     * 是否已经转存到文件
+     */
+    public boolean isSpilled() {
+        return spilled != null;
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (spilled == null && items.size() >= threshold) {
+            spill();
+        }
+        modCount++;
+        return items.add(t);
+    }
+
+    private void spill() {
+        long startTime = System.currentTimeMillis();
+        FileBasedList<T> list = new FileBasedList<>(type);
+        list.addAll(items);
+        spilled = list;
+        items = list;
+        Logger.log("列表超过" + threshold + "条转存文件，耗时：" + (System.currentTimeMillis() - startTime));
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void clear() {
+        close();
+        modCount++;
+        items = new ArrayList<>();
+    }
+
+    @Override
+    public void close() {
+        if (spilled != null) {
+            spilled.close();
+            spilled = null;
+        }
+    }
+}
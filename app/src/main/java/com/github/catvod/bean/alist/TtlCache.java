@@ -0,0 +1,67 @@
+package com.github.catvod.bean.alist;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 带过期时间和条数上限的缓存，超过上限时淘汰最久未用的条目
+ */
+public class TtlCache<K, V> {
+
+    private final long ttl;
+    private final int capacity;
+    private final Map<K, Timed<V>> map;
+
+    /**
+     * @param ttl      过期时间，毫秒
+     * @param capacity 最多保留的条数
+     */
+    public TtlCache(long ttl, int capacity) {
+        this.ttl = ttl;
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<K, Timed<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Timed<V>> eldest) {
+                return size() > TtlCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return 没有或已过期时返回 null
+     */
+    public synchronized V get(K key) {
+        Timed<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.time > ttl) {
+            map.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Timed<>(value, System.currentTimeMillis()));
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    private static class Timed<V> {
+
+        final V value;
+        final long time;
+
+        Timed(V value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 详情页用的 Vod 缓存，按估算的内存大小限制容量，分段 LRU 淘汰：
+ * 新条目先进试用段，再次命中才升到保护段；保护段满了把最久未用的降回试用段，
+ * 总量超限时先淘汰试用段。一次性浏览的大量条目不会挤掉反复访问的条目。
+ * 没有命中时交给 {@link Loader} 取回（如从本地索引按 vodId 查找）。
+ */
+public class VodCache {
+
+    private static final int PROTECTED_PERCENT = 80; // 保护段占总容量的比例
+
+    private final long capacity;
+    private final long protectedCapacity;
+    private final Loader loader;
+    private final LinkedHashMap<String, Weighted> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Weighted> protect = new LinkedHashMap<>(16, 0.75f, true);
+    private long probationWeight;
+    private long protectWeight;
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+
+    /**
+     * 缓存未命中时取回 Vod
+     */
+    public interface Loader {
+
+        /**
+         * @param id vodId
+         * @return 取不到时返回 null
+         */
+        Vod load(String id);
+    }
+
+    /**
+     * @param capacity 容量，估算的字节数
+     * @param loader   未命中时的取回方法，可以为 null
+     */
+    public VodCache(long capacity, Loader loader) {
+        this.capacity = capacity;
+        this.protectedCapacity = capacity * PROTECTED_PERCENT / 100;
+        this.loader = loader;
+    }
+
+    /**
+     * 取缓存，没有时用 loader 取回并放入缓存
+     *
+     * @return 都没有时返回 null
+     */
+    public Vod get(String id) {
+        synchronized (this) {
+            Weighted entry = protect.get(id);
+            if (entry == null) {
+                entry = probation.remove(id);
+                if (entry != null) {
+                    probationWeight -= entry.weight;
+                    promote(id, entry);
+                }
+            }
+            if (entry != null) {
+                hits++;
+                return entry.vod;
+            }
+            misses++;
+        }
+        Vod vod = loader == null ? null : loader.load(id);
+        if (vod != null) {
+            synchronized (this) {
+                loads++;
+            }
+            put(id, vod);
+        }
+        return vod;
+    }
+
+    /**
+     * 放入或替换，同一个 Vod 内容变化后再放一次会重新估算大小
+     */
+    public synchronized void put(String id, Vod vod) {
+        Weighted old = protect.get(id);
+        if (old != null) {
+            protectWeight -= old.weight;
+            Weighted entry = new Weighted(vod);
+            protect.put(id, entry);
+            protectWeight += entry.weight;
+            demote();
+        } else {
+            old = probation.remove(id);
+            if (old != null) probationWeight -= old.weight;
+            Weighted entry = new Weighted(vod);
+            probation.put(id, entry);
+            probationWeight += entry.weight;
+        }
+        evict();
+    }
+
+    public synchronized void clear() {
+        probation.clear();
+        protect.clear();
+        probationWeight = 0;
+        protectWeight = 0;
+    }
+
+    public synchronized int size() {
+        return probation.size() + protect.size();
+    }
+
+    /**
+     * 命中率，还没有访问时为 0
+     */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 条数、估算大小、命中率和取回、淘汰次数
+     */
+    public synchronized String stats() {
+        return "条数：" + size() + "，大小：" + (probationWeight + protectWeight) / 1024 + "K，命中：" + hits + "，未命中：" + misses + "，命中率：" + Math.round(hitRate() * 100) + "%，取回：" + loads + "，淘汰：" + evictions;
+    }
+
+    private void promote(String id, Weighted entry) {
+        protect.put(id, entry);
+        protectWeight += entry.weight;
+        demote();
+    }
+
+    /**
+     * 保护段超出容量时，最久未用的降回试用段
+     */
+    private void demote() {
+        Iterator<Map.Entry<String, Weighted>> it = protect.entrySet().iterator();
+        while (protectWeight > protectedCapacity && it.hasNext()) {
+            Map.Entry<String, Weighted> eldest = it.next();
+            it.remove();
+            protectWeight -= eldest.getValue().weight;
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue().weight;
+        }
+    }
+
+    /**
+     * 总量超出容量时先淘汰试用段，试用段空了再淘汰保护段
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Weighted>> it = probation.entrySet().iterator();
+        while (probationWeight + protectWeight > capacity && it.hasNext()) {
+            probationWeight -= it.next().getValue().weight;
+            it.remove();
+            evictions++;
+        }
+        it = protect.entrySet().iterator();
+        while (probationWeight + protectWeight > capacity && it.hasNext()) {
+            protectWeight -= it.next().getValue().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static class Weighted {
+
+        final Vod vod;
+        final int weight;
+
+        Weighted(Vod vod) {
+            this.vod = vod;
+            this.weight = weigh(vod);
+        }
+
+        /**
+         * 估算占用的字节数：对象头和字段的固定开销，加上主要字符串的长度
+         */
+        private static int weigh(Vod vod) {
+            return 256 + 2 * (length(vod.getVodId()) + length(vod.getVodName()) + length(vod.getVodPic()) + length(vod.getVodRemarks())
+                    + length(vod.getVodContent()) + length(vod.getVodPlayUrl()));
+        }
+
+        private static int length(String text) {
+            return text == null ? 0 : text.length();
+        }
+    }
+}
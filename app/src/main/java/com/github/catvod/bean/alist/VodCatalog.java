@@ -0,0 +1,416 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.RandomAccess;
+
+/**
+ * 列式存储的本地影片目录。
+ * 字符串统一放在一块 UTF-8 字节区（arena）里，各列只存 int 偏移；父目录路径去重后共用；
+ * 豆瓣 id 和评分按原文存成字符串，评分另存一列 float 用于排序和门槛，是否文件/是否有海报压成一个字节。
+ * 过滤和排序直接扫这些基本类型数组，只有真正返回给客户端的那一页才会创建 Vod 对象。
+ * 多个目录可以首尾拼接（如每日增量 + 基础索引），各部分的列数据保持独立，记录编号连续。
+ */
+public class VodCatalog extends AbstractList<Vod> implements RandomAccess {
+
+    public static final int FLAG_FILE = 1;
+    public static final int FLAG_PIC = 2;
+
+    private final Columns[] parts; // 各部分的列数据
+    private final int[] starts; // 每部分第一条记录的编号，最后多一个总记录数
+    private final int[] index;
+    private final String driveName; // vodId 的盘名前缀
+    private final VodCatalog root; // 记录编号所属的完整目录，分面索引建在它上面
+    private volatile CatalogFacets facets;
+    private volatile long[] ids;
+
+    public VodCatalog(ByteBuffer arena, IntBuffer parent, IntBuffer file, IntBuffer title, IntBuffer thumb, IntBuffer douban,
+                      IntBuffer remark, FloatBuffer rating, ByteBuffer flags, IntBuffer prefixes) {
+        this(new Columns[]{new Columns(arena, parent, file, title, thumb, douban, remark, rating, flags, prefixes)}, null, "", null);
+    }
+
+    private VodCatalog(Columns[] parts, int[] index, String driveName, VodCatalog root) {
+        this.parts = parts;
+        this.index = index;
+        this.driveName = driveName;
+        this.root = root == null ? this : root;
+        this.starts = new int[parts.length + 1];
+        for (int p = 0; p < parts.length; p++) {
+            starts[p + 1] = starts[p] + parts[p].parent.limit();
+        }
+    }
+
+    static String readString(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset + 2);
+        dup.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String getDriveName() {
+        return driveName;
+    }
+
+    /**
+     * 换一个盘名前缀，共用同一份列数据；同一个服务器的多个盘各自取自己的视图，互不影响
+     *
+     * @param driveName 盘名
+     */
+    public VodCatalog named(String driveName) {
+        return driveName.equals(this.driveName) ? this : new VodCatalog(parts, index, driveName, root);
+    }
+
+    private int record(int i) {
+        return index == null ? i : index[i];
+    }
+
+    /**
+     * 记录所在的部分，部分很少，顺序找即可
+     */
+    private int part(int r) {
+        int p = 0;
+        while (r >= starts[p + 1]) p++;
+        return p;
+    }
+
+    @Override
+    public int size() {
+        return index == null ? starts[parts.length] : index.length;
+    }
+
+    @Override
+    public Vod get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Index " + i + " is out of bounds");
+        }
+        int r = record(i);
+        int p = part(r);
+        Columns c = parts[p];
+        int k = r - starts[p];
+        String name = c.title(k);
+        String remarks = c.ratingText(k);
+        Vod vod = new Vod(driveName + c.id(k), name, c.thumb(k), remarks, false);
+        vod.doubanInfo.setId(readString(c.arena, c.douban.get(k)));
+        vod.doubanInfo.setRating(remarks);
+        vod.doubanInfo.setName(name);
+        return vod;
+    }
+
+    /**
+     * 不含盘名前缀的 vodId
+     */
+    public String getId(int i) {
+        int r = record(i);
+        int p = part(r);
+        return parts[p].id(r - starts[p]);
+    }
+
+    public String getTitle(int i) {
+        int r = record(i);
+        int p = part(r);
+        return parts[p].title(r - starts[p]);
+    }
+
+    public String getFileName(int i) {
+        int r = record(i);
+        int p = part(r);
+        return parts[p].fileName(r - starts[p]);
+    }
+
+    /**
+     * 豆瓣评分，没有评分时为 0
+     */
+    public float getRating(int i) {
+        int r = record(i);
+        int p = part(r);
+        float value = parts[p].rating.get(r - starts[p]);
+        return Float.isNaN(value) ? 0 : value;
+    }
+
+    public boolean isFile(int i) {
+        return (flags(i) & FLAG_FILE) != 0;
+    }
+
+    public boolean hasPic(int i) {
+        return (flags(i) & FLAG_PIC) != 0;
+    }
+
+    private byte flags(int i) {
+        int r = record(i);
+        int p = part(r);
+        return parts[p].flags.get(r - starts[p]);
+    }
+
+    /**
+     * 找出 vodId（不含盘名前缀）以 prefix 开头的位置。
+     * 先对去重后的父目录判断一次，只有父目录是 prefix 的前缀时才需要逐条比较文件名
+     *
+     * @param prefix 路径前缀，如 /电影/4K
+     * @return 升序的位置
+     */
+    public int[] filter(String prefix) {
+        byte[][] state = new byte[parts.length][];
+        for (int p = 0; p < parts.length; p++) {
+            Columns c = parts[p];
+            int prefixCount = c.prefixes.limit();
+            state[p] = new byte[prefixCount];
+            for (int q = 0; q < prefixCount; q++) {
+                String path = readString(c.arena, c.prefixes.get(q));
+                state[p][q] = (byte) (path.startsWith(prefix) ? 1 : prefix.startsWith(path) ? 2 : 0);
+            }
+        }
+        int size = size();
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int r = record(i);
+            int p = part(r);
+            int k = r - starts[p];
+            byte s = state[p][parts[p].parent.get(k)];
+            if (s == 1 || (s == 2 && parts[p].id(k).startsWith(prefix))) {
+                result[n++] = i;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * 按 vodId 查找，走 {@link #ids()} 的散列表，只有散列值相同的记录才比较路径
+     *
+     * @param id 不含盘名前缀的 vodId
+     * @return 位置，没有时返回 -1
+     */
+    public int indexOf(String id) {
+        boolean file = id.endsWith("/~soufile");
+        if (!file && !id.endsWith("/~soulist")) {
+            return -1;
+        }
+        String path = id.substring(0, id.length() - "/~soufile".length());
+        int slash = path.lastIndexOf('/');
+        String prefix = path.substring(0, slash + 1);
+        String name = path.substring(slash + 1);
+        long[] ids = ids();
+        long key = (long) key(hash(prefix), hash(name)) << 32;
+        int i = Arrays.binarySearch(ids, key);
+        for (i = i < 0 ? -i - 1 : i; i < ids.length && (ids[i] & 0xFFFFFFFF00000000L) == key; i++) {
+            int r = (int) ids[i];
+            int p = root.part(r);
+            Columns c = root.parts[p];
+            int k = r - root.starts[p];
+            if (((c.flags.get(k) & FLAG_FILE) != 0) == file && c.fileName(k).equals(name)
+                    && readString(c.arena, c.prefixes.get(c.parent.get(k))).equals(prefix)) {
+                return position(r);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录编号在本目录中的位置，视图很少用来查找，顺序找即可
+     */
+    private int position(int r) {
+        if (index == null) {
+            return r;
+        }
+        for (int i = 0; i < index.length; i++) {
+            if (index[i] == r) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 完整目录的 vodId 散列表（父目录和文件名 UTF-8 字节的 hash << 32 | 记录编号，升序），
+     * 第一次调用时构建，同一目录的各个视图共用。只读字节区，不创建字符串
+     */
+    long[] ids() {
+        long[] result = root.ids;
+        if (result == null) {
+            synchronized (root) {
+                result = root.ids;
+                if (result == null) {
+                    result = new long[root.starts[root.parts.length]];
+                    int n = 0;
+                    for (Columns c : root.parts) {
+                        int[] prefixHashes = new int[c.prefixes.limit()];
+                        for (int q = 0; q < prefixHashes.length; q++) prefixHashes[q] = hash(c.arena, c.prefixes.get(q));
+                        for (int k = 0; k < c.parent.limit(); k++, n++) {
+                            int key = key(prefixHashes[c.parent.get(k)], hash(c.arena, c.file.get(k)));
+                            result[n] = ((long) key << 32) | n;
+                        }
+                    }
+                    Arrays.sort(result);
+                    root.ids = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int key(int prefixHash, int nameHash) {
+        return prefixHash * 31 + nameHash;
+    }
+
+    /**
+     * 字节区里一个字符串的 UTF-8 字节 hash，和 {@link #hash(String)} 一致
+     */
+    private static int hash(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        int h = 0;
+        for (int i = 0; i < length; i++) h = 31 * h + buffer.get(offset + 2 + i);
+        return h;
+    }
+
+    private static int hash(String value) {
+        int h = 0;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) h = 31 * h + b;
+        return h;
+    }
+
+    /**
+     * 按位置取子集，共用同一份列数据
+     *
+     * @param positions 本目录中的位置
+     */
+    public VodCatalog view(int[] positions) {
+        int[] records = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            records[i] = record(positions[i]);
+        }
+        return new VodCatalog(parts, records, driveName, root);
+    }
+
+    /**
+     * 把另一个目录接在本目录后面，不复制列数据
+     *
+     * @param other 另一个完整的目录（不能是 {@link #view} 的结果）
+     */
+    public VodCatalog concat(VodCatalog other) {
+        if (index != null || other.index != null) {
+            throw new IllegalArgumentException("只能拼接完整的目录");
+        }
+        Columns[] merged = Arrays.copyOf(parts, parts.length + other.parts.length);
+        System.arraycopy(other.parts, 0, merged, parts.length, other.parts.length);
+        return new VodCatalog(merged, null, driveName, null);
+    }
+
+    /**
+     * 完整目录的分面索引，第一次调用时构建，同一目录的各个视图共用
+     */
+    public CatalogFacets facets() {
+        CatalogFacets result = root.facets;
+        if (result == null) {
+            synchronized (root) {
+                result = root.facets;
+                if (result == null) {
+                    root.facets = result = new CatalogFacets(root);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 本目录包含的记录，编号是完整目录中的位置
+     */
+    public BitSet scope() {
+        BitSet bits = new BitSet(root.size());
+        if (index == null) {
+            bits.set(0, size());
+        } else {
+            for (int r : index) bits.set(r);
+        }
+        return bits;
+    }
+
+    /**
+     * 按记录编号取视图，编号来自 {@link #facets()} 或 {@link #scope()}
+     *
+     * @param records 完整目录中的位置
+     */
+    public VodCatalog records(int[] records) {
+        return new VodCatalog(parts, records, driveName, root);
+    }
+
+    /**
+     * vodId（不含盘名前缀）以 prefix 开头的子集，使用分面索引缓存的子目录位图
+     *
+     * @param prefix 路径前缀，如 /电影/4K
+     */
+    public VodCatalog within(String prefix) {
+        BitSet bits = (BitSet) facets().subpath(prefix).clone();
+        if (index != null) {
+            bits.and(scope());
+        }
+        int[] records = new int[bits.cardinality()];
+        int n = 0;
+        for (int r = bits.nextSetBit(0); r >= 0; r = bits.nextSetBit(r + 1)) records[n++] = r;
+        return records(records);
+    }
+
+    /**
+     * 一份独立的列数据，字符串偏移都指向自己的字节区
+     */
+    private static class Columns {
+
+        final ByteBuffer arena;
+        final IntBuffer parent;
+        final IntBuffer file;
+        final IntBuffer title;
+        final IntBuffer thumb;
+        final IntBuffer douban;
+        final IntBuffer remark;
+        final FloatBuffer rating;
+        final ByteBuffer flags;
+        final IntBuffer prefixes;
+
+        Columns(ByteBuffer arena, IntBuffer parent, IntBuffer file, IntBuffer title, IntBuffer thumb, IntBuffer douban,
+                IntBuffer remark, FloatBuffer rating, ByteBuffer flags, IntBuffer prefixes) {
+            this.arena = arena;
+            this.parent = parent;
+            this.file = file;
+            this.title = title;
+            this.thumb = thumb;
+            this.douban = douban;
+            this.remark = remark;
+            this.rating = rating;
+            this.flags = flags;
+            this.prefixes = prefixes;
+        }
+
+        String id(int k) {
+            String suffix = (flags.get(k) & FLAG_FILE) != 0 ? "/~soufile" : "/~soulist";
+            return readString(arena, prefixes.get(parent.get(k))) + readString(arena, file.get(k)) + suffix;
+        }
+
+        String title(int k) {
+            return readString(arena, title.get(k));
+        }
+
+        String fileName(int k) {
+            return readString(arena, file.get(k));
+        }
+
+        String thumb(int k) {
+            return readString(arena, thumb.get(k));
+        }
+
+        /**
+         * 原始的评分文本，和索引行里的一样
+         */
+        String ratingText(int k) {
+            return readString(arena, remark.get(k));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Vod 的二进制编码，字段按固定顺序写长度前缀的 UTF-8，不经过 Gson 反射
+ */
+public class VodCodec implements RecordCodec<Vod> {
+
+    @Override
+    public byte[] encode(Vod value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            value.writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode vod", e);
+        }
+    }
+
+    @Override
+    public Vod decode(byte[] bytes) {
+        try {
+            return Vod.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode vod", e);
+        }
+    }
+
+    @Override
+    public boolean isText() {
+        return false;
+    }
+}
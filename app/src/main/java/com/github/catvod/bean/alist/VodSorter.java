@@ -24,6 +24,28 @@ public class VodSorter {
     }
 
     public static List<Vod> sortVods(List<Vod> vods, HashMap<String, String> fl) {
+        return sortVods(vods, fl, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 过滤、排序并随机筛选
+     *
+     * @param vods 影片列表
+     * @param fl   筛选条件
+     * @param need 需要排好序的前多少条；列表总数不变，之后的元素保持原来的相对顺序。
+     *             评分排序时只用有界堆选出前 need 条，不排整个列表
+     */
+    public static List<Vod> sortVods(List<Vod> vods, HashMap<String, String> fl, int need) {
+        return sortVods(vods, fl, need, new Sampler());
+    }
+
+    /**
+     * @param sampler 随机筛选用的抽样器，固定种子时同样的条件得到同样的随机结果
+     */
+    public static List<Vod> sortVods(List<Vod> vods, HashMap<String, String> fl, int need, Sampler sampler) {
+        if (vods instanceof VodCatalog) {
+            return sortCatalog((VodCatalog) vods, fl, sampler);
+        }
         List<Vod> filteredVods = vods;
         long startTime = System.currentTimeMillis();
         long duration = 0;
@@ -31,7 +53,7 @@ public class VodSorter {
         String subpath = fl.get("subpath");
         if (subpath != null && !subpath.endsWith("~all")) {
             Logger.log("subpath:" + subpath);
-            filteredVods = filteredVods.stream()
+            filteredVods = filteredVods.parallelStream()
                 .filter(vod -> vod.getVodId().startsWith(subpath))
                 .collect(Collectors.toList());
         }
@@ -42,7 +64,7 @@ public class VodSorter {
         // 解析豆瓣评分阈值（从 HashMap 获取）
         double doubanThreshold = parseDoubleSafe(fl.getOrDefault("douban", "0"));
         // 1. 过滤评分达标的视频
-        filteredVods = filteredVods.stream()
+        filteredVods = filteredVods.parallelStream()
             .filter(vod -> parseDoubleSafe(vod.doubanInfo.getRating()) >= doubanThreshold)
             .collect(Collectors.toList());
 
@@ -52,29 +74,19 @@ public class VodSorter {
         startTime = System.currentTimeMillis();
         // 2. 排序处理（从 HashMap 获取排序类型）
         String sortType = fl.getOrDefault("doubansort", "0");
-        if (!"0".equals(sortType)) {
-            Comparator<Vod> comparator = Comparator.comparingDouble(
-                v -> parseDoubleSafe(v.doubanInfo.getRating())
-            );
-            
-            switch (sortType) {
-                case "1":
-                    filteredVods.sort(comparator.reversed()); // 降序
-                    break;
-                case "2":
-                    filteredVods.sort(comparator); // 升序
-                    break;
-            }
+        int randomCount = parseIntSafe(fl.getOrDefault("random", "0"));
+        if ("1".equals(sortType) || "2".equals(sortType)) {
+            // 随机筛选要在完整的排序结果上挑选
+            filteredVods = sortByRating(filteredVods, "1".equals(sortType), randomCount > 0 ? Integer.MAX_VALUE : need);
         }
         duration = System.currentTimeMillis() - startTime;
         Logger.log("豆瓣评分排序耗时：" + duration);
 
         startTime = System.currentTimeMillis();
         // 3. 随机筛选（从 HashMap 获取随机数量）
-        int randomCount = parseIntSafe(fl.getOrDefault("random", "0"));
         if (randomCount > 0) {
             boolean keepOrder = "1".equals(sortType) || "2".equals(sortType);
-            filteredVods = getRandomElements(filteredVods, randomCount, keepOrder);
+            filteredVods = getRandomElements(filteredVods, randomCount, keepOrder, sampler);
         }
         duration = System.currentTimeMillis() - startTime;
         Logger.log("随机筛选耗时：" + duration);
@@ -82,6 +94,88 @@ public class VodSorter {
         return filteredVods;
     }
 
+    /**
+     * 列式目录的快速路径：分类、评分门槛和评分排序都交给分面索引，
+     * 只做位图求交和预排序排列的顺序遍历，不创建 Vod 对象
+     */
+    private static List<Vod> sortCatalog(VodCatalog catalog, HashMap<String, String> fl, Sampler sampler) {
+        long startTime = System.currentTimeMillis();
+        CatalogFacets facets = catalog.facets();
+        BitSet scope = catalog.scope();
+        String subpath = fl.get("subpath");
+        if (subpath != null && !subpath.endsWith("~all")) {
+            Logger.log("subpath:" + subpath);
+            String driveName = catalog.getDriveName();
+            if (subpath.startsWith(driveName)) {
+                scope.and(facets.subpath(subpath.substring(driveName.length())));
+            } else {
+                scope.clear();
+            }
+        }
+        float doubanThreshold = (float) parseDoubleSafe(fl.getOrDefault("douban", "0"));
+        String sortType = fl.getOrDefault("doubansort", "0");
+        int sort = "1".equals(sortType) ? CatalogFacets.SORT_DESC : "2".equals(sortType) ? CatalogFacets.SORT_ASC : CatalogFacets.SORT_NONE;
+        int[] records = facets.select(scope, doubanThreshold, sort);
+        Logger.log("分面筛选耗时：" + (System.currentTimeMillis() - startTime));
+
+        startTime = System.currentTimeMillis();
+        List<Vod> filteredVods = catalog.records(records);
+        int randomCount = parseIntSafe(fl.getOrDefault("random", "0"));
+        if (randomCount > 0) {
+            boolean keepOrder = sort != CatalogFacets.SORT_NONE;
+            filteredVods = getRandomElements(filteredVods, randomCount, keepOrder, sampler);
+        }
+        Logger.log("随机筛选耗时：" + (System.currentTimeMillis() - startTime));
+        return filteredVods;
+    }
+
+    /**
+     * 按豆瓣评分排序，评分只解析一次；同分保持原来的顺序。
+     * limit 小于列表长度时用大小为 limit 的堆选出前 limit 条，其余元素按原顺序接在后面
+     *
+     * @param vods  影片列表
+     * @param desc  是否降序
+     * @param limit 需要排好序的条数
+     */
+    private static List<Vod> sortByRating(List<Vod> vods, boolean desc, int limit) {
+        int n = vods.size();
+        double[] ratings = new double[n];
+        for (int i = 0; i < n; i++) ratings[i] = parseDoubleSafe(vods.get(i).doubanInfo.getRating());
+        Comparator<Integer> order = (a, b) -> {
+            int c = desc ? Double.compare(ratings[b], ratings[a]) : Double.compare(ratings[a], ratings[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        };
+        List<Vod> sorted = new ArrayList<>(n);
+        if (limit >= n) {
+            Integer[] indexes = new Integer[n];
+            for (int i = 0; i < n; i++) indexes[i] = i;
+            Arrays.sort(indexes, order);
+            for (int index : indexes) sorted.add(vods.get(index));
+            return sorted;
+        }
+        // 堆顶是已选中的最差一条，新元素比它好时替换
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, order.reversed());
+        for (int i = 0; i < n; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (limit > 0 && order.compare(i, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        Integer[] top = heap.toArray(new Integer[0]);
+        Arrays.sort(top, order);
+        boolean[] taken = new boolean[n];
+        for (int index : top) {
+            sorted.add(vods.get(index));
+            taken[index] = true;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!taken[i]) sorted.add(vods.get(i));
+        }
+        return sorted;
+    }
+
     private static double parseDoubleSafe(String s) {
         try {
             return s != null ? Double.parseDouble(s) : 0.0;
@@ -98,33 +192,23 @@ public class VodSorter {
         }
     }
     
-    private static List<Vod> getRandomElements(List<Vod> source, int count, boolean keepOrder) {
+    /**
+     * 随机挑选 count 个元素。列式目录只抽位置，返回共用列数据的视图，不创建 Vod
+     *
+     * @param keepOrder 是否保持原来的先后顺序
+     */
+    private static List<Vod> getRandomElements(List<Vod> source, int count, boolean keepOrder, Sampler sampler) {
+        if (source instanceof VodCatalog) {
+            int[] indexes = sampler.sample(source.size(), count);
+            if (keepOrder) Arrays.sort(indexes);
+            return ((VodCatalog) source).view(indexes);
+        }
         if (source.size() <= count) {
             List<Vod> result = new ArrayList<>(source);
-            if (!keepOrder) Collections.shuffle(result);
+            if (!keepOrder) sampler.shuffle(result);
             return result;
         }
-    
-        // 使用随机索引挑选元素
-        Random random = new Random();
-        Set<Integer> selectedIndexes = new HashSet<>();
-        while (selectedIndexes.size() < count) {
-            int index = random.nextInt(source.size());
-            selectedIndexes.add(index);
-        }
-        
-        // 根据索引挑选元素
-        List<Vod> randomSelection = new ArrayList<>();
-        for (int index : selectedIndexes) {
-            randomSelection.add(source.get(index));
-        }
-        
-        // 如果需要保持原始顺序，按索引排序
-        if (keepOrder) {
-            randomSelection.sort(Comparator.comparingInt(source::indexOf));
-        }
-        
-        return randomSelection;
+        return sampler.pick(source, count, keepOrder);
     }
-    
+
 }
@@ -1,349 +1,616 @@
 package com.github.catvod.bean.alist;
 
 import java.io.*;
-import java.net.URL;
 import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import com.github.catvod.bean.Vod;
+import com.github.catvod.net.OkDownload;
+import com.github.catvod.net.OkHttp;
 import com.github.catvod.bean.alist.Drive;
 import com.github.catvod.bean.alist.Item;
+import com.github.catvod.spider.Init;
 import com.github.catvod.spider.Logger;
-import com.github.catvod.utils.Image;
 import com.github.catvod.utils.Util;
-import android.text.TextUtils;
 
 import android.os.Debug;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
 public class XiaoyaLocalIndex {
-    private static Map<String, List<Vod>> cacheMap = new HashMap<>();
-    private static Map<String, Map<String, List<Integer>>> invertedIndexMap = new HashMap<>();
+    private static final String SNAPSHOT_FILE = "index.snapshot";
+    private static final String[] ARCHIVES = {"index.video.tgz", "index.115.tgz"};
+    private static final int QUICK_LIMIT = 100;
+    private static final String DAILY_NUM = "1000"; // 增量更新每次拉取的每日更新条数
+    private static final long FIRST_BUILD_TIMEOUT = 10 * 1000; // 没有本地快照时请求等待第一次构建的时间
+
+    private static final Map<String, Shard> shards = new ConcurrentHashMap<>();
 
-    public static synchronized List<Vod> downlodadAndUnzip(Drive drive) {
+    /**
+     * 一个服务器的本地索引，每个服务器只有一个分片，不会被替换。
+     * 第一次访问时直接打开磁盘上的快照；条件下载和重建同一时间只进行一次，同时到达的请求等待同一个任务。
+     * 发布快照和追加增量日志都在分片的锁内进行，同一服务器只有一份增量日志；
+     * 发布的快照不可变，读取不加锁，各服务器之间互不阻塞
+     */
+    private static class Shard {
+
+        final Drive drive;
+        final String server;
+        final String saveDir;
+        volatile IndexSnapshot published; // 当前对外的快照，增量更新时整体替换
+        IndexJournal journal; // 当前基础快照的增量日志，只在分片的锁内读写
+        private boolean opened; // 已经尝试过打开本地快照
+        private FutureTask<IndexSnapshot> validation; // 进行中或最近一次的条件下载
+
+        Shard(Drive drive) {
+            this.drive = drive;
+            this.server = drive.getServer();
+            this.saveDir = com.github.catvod.utils.Path.root().getPath() + "/TV/index/"
+                    + server.split("//")[1].replace(":", "_port");
+        }
 
-        Logger.log("本地索引前的内存：" + Debug.getNativeHeapAllocatedSize());
+        /**
+         * 打开磁盘上已有的快照和增量日志，只映射文件不访问网络，只尝试一次
+         */
+        synchronized void openLocal() {
+            if (opened || published != null) {
+                return;
+            }
+            opened = true;
+            long startTime = System.currentTimeMillis();
+            IndexSnapshot snapshot = IndexSnapshot.open(new File(saveDir, SNAPSHOT_FILE), null);
+            if (snapshot == null) {
+                return;
+            }
+            publish(snapshot);
+            Logger.log("打开本地快照耗时：" + (System.currentTimeMillis() - startTime));
+        }
 
-        String server = drive.getServer();
-        List<Vod> vods = cacheMap.get(server);
-        if (vods != null) {
-            for (Vod vod : vods) {
-                vod.setVodDrive(drive.getName());
+        /**
+         * 取条件下载任务：上一次还在进行时共用；上一次失败，或 again 为 true 且上一次已结束时新建
+         */
+        synchronized FutureTask<IndexSnapshot> validation(boolean again) {
+            if (validation == null || validation.isDone() && (again || failed(validation))) {
+                validation = new FutureTask<>(this::validate);
             }
-            return vods;
+            return validation;
         }
 
-        try {
+        private static boolean failed(FutureTask<IndexSnapshot> task) {
+            try {
+                task.get();
+                return false;
+            } catch (ExecutionException | InterruptedException | CancellationException e) {
+                return true;
+            }
+        }
+
+        private IndexSnapshot validate() throws IOException {
+            Logger.log("本地索引前的内存：" + Debug.getNativeHeapAllocatedSize());
             String fileUrl = server + "/tvbox/data";
-            String saveDir = com.github.catvod.utils.Path.root().getPath() + "/TV/index/"
-                    + server.split("//")[1].replace(":", "_port");
             Logger.log(saveDir);
+            File snapshotFile = new File(saveDir, SNAPSHOT_FILE);
 
-            // 0. 清空目录
-            deleteFiles(saveDir, null); // 删除 saveDir 中的所有文件
-
-            // 1. 确保目录存在
+            // 条件下载压缩包，远端没有变化时直接打开本地快照
+            long startTime = System.currentTimeMillis();
             createDirectoryIfNotExists(saveDir);
+            IndexSnapshot snapshot = loadSnapshot(drive, fileUrl, saveDir, snapshotFile);
+            Logger.log("打开本地索引耗时：" + (System.currentTimeMillis() - startTime));
+            snapshot = publish(snapshot);
+            snapshot.catalog().facets(); // 分面索引和 vodId 散列表在后台加载时建好，请求不用等
+            snapshot.catalog().ids();
+            Logger.log("本地索引后的内存：" + Debug.getNativeHeapAllocatedSize());
+            return snapshot;
+        }
 
-            // 2. 下载文件
-            downloadFile(fileUrl + "/index.video.tgz", saveDir + "/index.video.tgz");
-            downloadFile(fileUrl + "/index.115.tgz", saveDir + "/index.115.tgz");
+        /**
+         * 接上之前的每日增量后发布，基础快照换了版本时先从增量日志里去掉新基础已有的行。
+         * 打开本地快照和条件下载都在分片的锁内发布，后发布的不会被先打开的旧快照覆盖
+         */
+        private synchronized IndexSnapshot publish(IndexSnapshot snapshot) {
+            IndexJournal journal = IndexJournal.open(new File(saveDir), snapshot.getVersion());
+            try {
+                if (journal.isRebased()) {
+                    IndexSnapshot base = snapshot;
+                    journal.compact(line -> !known(drive, base, line));
+                }
+                snapshot = withDelta(drive, snapshot, journal);
+            } catch (IOException e) {
+                Logger.log("增量索引加载失败：" + e.getMessage());
+            }
+            this.journal = journal;
+            this.published = snapshot;
+            return snapshot;
+        }
+    }
 
-            // 3. 解压文件
-            unzipFile(saveDir + "/index.video.tgz", saveDir);
-            unzipFile(saveDir + "/index.115.tgz", saveDir);
+    public static List<Vod> downlodadAndUnzip(Drive drive) {
+        IndexSnapshot snapshot = snapshot(drive);
+        return snapshot == null ? new ArrayList<>() : snapshot.catalog();
+    }
 
-            mergeFiles(saveDir, saveDir + "/index.all.txt");
+    /**
+     * 取服务器的快照。第一次访问时同步打开磁盘上的快照，有快照就直接用，条件下载和重建交给后台；
+     * 磁盘上还没有快照时最多等第一次构建 {@link #FIRST_BUILD_TIMEOUT}，超时后构建在后台继续
+     *
+     * @param drive 所属的盘
+     * @return 带本盘盘名的快照视图，还没有可用的快照时返回 null
+     */
+    private static IndexSnapshot snapshot(Drive drive) {
+        Shard shard = shard(drive);
+        if (shard.published == null) {
+            shard.openLocal();
+        }
+        IndexScheduler.schedule(drive);
+        if (shard.published == null) {
+            await(shard, FIRST_BUILD_TIMEOUT);
+        }
+        return published(drive);
+    }
 
-            // 4. 删除指定文件
-            deleteFilesExclude(saveDir, "index.all.txt");
-            deleteFiles(saveDir, "*.tgz");
+    /**
+     * 当前发布的快照，不加载也不等待
+     */
+    private static IndexSnapshot published(Drive drive) {
+        Shard shard = shards.get(drive.getServer());
+        IndexSnapshot snapshot = shard == null ? null : shard.published;
+        return snapshot == null ? null : snapshot.named(drive.getName());
+    }
 
-            long startMemory = Debug.getNativeHeapAllocatedSize();
-            //List<String> lines = Files.readAllLines(Paths.get(saveDir + "/index.all.txt"));
-            List<String> lines = new LazyFileList(saveDir + "/index.all.txt");
-            Logger.log("索引列表消耗内存：" + (Debug.getNativeHeapAllocatedSize() - startMemory));
+    private static Shard shard(Drive drive) {
+        return shards.computeIfAbsent(drive.getServer(), server -> new Shard(drive));
+    }
 
-            vods = toVods(drive, lines);
+    /**
+     * 运行或等待分片的条件下载任务，第一个调用者负责执行，其余调用者在 get 上等待同一个任务
+     *
+     * @param again 为 true 时上一次已经成功也重新校验
+     * @return 成功时返回 true，失败时保留已发布的快照，下次重新下载
+     */
+    private static boolean await(Shard shard, boolean again) {
+        FutureTask<IndexSnapshot> task = shard.validation(again);
+        task.run();
+        try {
+            task.get();
+            return true;
+        } catch (ExecutionException e) {
+            Logger.log("本地索引加载失败：" + e.getCause().getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            // 构建倒排索引，用于快速查找
-            Map<String, List<Integer>> invertedIndex = new HashMap<>();
-            for (int i = 0; i < vods.size(); i++) {
-                String word = vods.get(i).getVodName();
-                invertedIndex.computeIfAbsent(word, k -> new ArrayList<>()).add(i);
+    /**
+     * 等待分片的条件下载任务，任务在后台线程执行，等待超时不影响任务继续
+     *
+     * @param timeout 最多等待的毫秒数
+     */
+    private static void await(Shard shard, long timeout) {
+        FutureTask<IndexSnapshot> task = shard.validation(false);
+        Init.execute(task); // 调度任务已经在执行时，这里的 run 直接返回
+        try {
+            task.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Logger.log("本地索引首次构建未完成，先不用本地索引");
+        } catch (ExecutionException e) {
+            Logger.log("本地索引加载失败：" + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 本地索引是否已经可用
+     */
+    public static boolean isLoaded(Drive drive) {
+        Shard shard = shards.get(drive.getServer());
+        return shard != null && shard.published != null;
+    }
+
+    /**
+     * 打开本地快照并完成第一次条件下载，已完成时立即返回，由后台调度调用
+     *
+     * @return 成功时返回 true
+     */
+    public static boolean load(Drive drive) {
+        Shard shard = shard(drive);
+        shard.openLocal();
+        return await(shard, false);
+    }
+
+    /**
+     * 重新校验基础索引：条件下载压缩包，有变化时全量重建。
+     * 重建期间旧快照照常提供服务，成功后才替换
+     *
+     * @return 校验成功时返回 true，失败时保留旧快照
+     */
+    public static boolean revalidate(Drive drive) {
+        return await(shard(drive), true);
+    }
+
+    /**
+     * 并发下载两个压缩包，有更新的压缩包边下载边解压解析，直接写入新快照，不落地中间文件
+     *
+     * @param drive        所属的盘
+     * @param fileUrl      压缩包所在目录的URL
+     * @param saveDir      保存目录
+     * @param snapshotFile 快照文件
+     */
+    private static IndexSnapshot loadSnapshot(Drive drive, String fileUrl, String saveDir, File snapshotFile)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(ARCHIVES.length);
+        try (SnapshotBuilder builder = new SnapshotBuilder(snapshotFile)) {
+            List<OkDownload> downloads = new ArrayList<>();
+            List<Future<OkDownload>> futures = new ArrayList<>();
+            for (int i = 0; i < ARCHIVES.length; i++) {
+                int index = i;
+                OkDownload download = OkDownload.get(fileUrl + "/" + ARCHIVES[i], new File(saveDir, ARCHIVES[i]));
+                downloads.add(download);
+                futures.add(executor.submit(() -> download.execute(in -> parseArchive(drive, in, builder.segment(index)))));
             }
 
-            invertedIndexMap.put(server, invertedIndex);
-            cacheMap.put(server, vods);
+            // 用压缩包的 ETag/Last-Modified 组成快照版本，远端不可达时沿用本地快照
+            String version = null;
+            try {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < ARCHIVES.length; i++) {
+                    sb.append(ARCHIVES[i]).append('=').append(futures.get(i).get().getVersion()).append(';');
+                }
+                version = sb.toString();
+            } catch (ExecutionException e) {
+                Logger.log("远端索引不可用，沿用本地快照：" + e.getCause());
+            }
+            IndexSnapshot snapshot = IndexSnapshot.open(snapshotFile, version);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            if (version == null) {
+                throw new IOException("没有可用的本地索引: " + saveDir);
+            }
 
-        } catch (IOException e) {
+            // 返回 304 的压缩包没有经过解析，从本地文件补上
+            futures.clear();
+            for (int i = 0; i < ARCHIVES.length; i++) {
+                int index = i;
+                OkDownload download = downloads.get(i);
+                if (download.isModified()) {
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    try (InputStream in = download.open()) {
+                        parseArchive(drive, in, builder.segment(index));
+                    }
+                    return download;
+                }));
+            }
+            for (Future<OkDownload> future : futures) {
+                future.get();
+            }
+            builder.segment(0);
+            builder.writer.commit(version);
+        } catch (ExecutionException e) {
+            throw new IOException("解析索引失败: " + saveDir, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("加载索引被中断: " + saveDir, e);
+        } finally {
+            executor.shutdownNow();
         }
 
-        Logger.log("本地索引后的内存：" + Debug.getNativeHeapAllocatedSize());
-
-        return vods;
+        IndexSnapshot snapshot = IndexSnapshot.open(snapshotFile, null);
+        if (snapshot == null) {
+            throw new IOException("快照打开失败: " + snapshotFile);
+        }
+        return snapshot;
     }
 
-    public static List<Vod> quickSearch(Drive drive, String keyword) {
+    /**
+     * 快照写入器在第一次需要解析压缩包时才创建，本地快照仍是最新时不产生临时文件。
+     * 各压缩包的分组在创建时按顺序一次建好，记录顺序不随下载先后变化
+     */
+    private static class SnapshotBuilder implements Closeable {
 
-        String server = drive.getServer();
-        downlodadAndUnzip(drive);
-        List<Integer> lineNumbers = invertedIndexMap.get(server).get(keyword);
-        if (lineNumbers == null) {
-            return new ArrayList<>();
+        private final File file;
+        private IndexSnapshot.Writer writer;
+        private IndexSnapshot.Writer.Segment[] segments;
+
+        SnapshotBuilder(File file) {
+            this.file = file;
         }
-        List<Vod> vods = new ArrayList<>();
-        for (Integer i : lineNumbers) {
-            vods.add(cacheMap.get(server).get(i));
+
+        synchronized IndexSnapshot.Writer.Segment segment(int index) throws IOException {
+            if (writer == null) {
+                writer = new IndexSnapshot.Writer(file);
+                segments = new IndexSnapshot.Writer.Segment[ARCHIVES.length];
+                for (int i = 0; i < ARCHIVES.length; i++) segments[i] = writer.segment();
+            }
+            return segments[index];
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (writer != null) writer.close();
         }
-        return vods;
     }
 
     /**
-     * 确保目录存在，如果不存在则创建
+     * 把增量日志写成小快照接在基础快照前面，日志没有变化时直接打开上次的增量快照
      *
-     * @param dirPath 目录路径
+     * @param drive   所属的盘
+     * @param base    基础快照
+     * @param journal 增量日志
      */
-    private static void createDirectoryIfNotExists(String dirPath) throws IOException {
-        Path path = Paths.get(dirPath);
-        if (!Files.exists(path)) {
-            Files.createDirectories(path);
+    private static IndexSnapshot withDelta(Drive drive, IndexSnapshot base, IndexJournal journal) throws IOException {
+        if (journal.getLines().isEmpty() || journal.isRebased()) {
+            return base;
+        }
+        long startTime = System.currentTimeMillis();
+        String version = journal.getDeltaVersion();
+        IndexSnapshot delta = IndexSnapshot.open(journal.getDeltaFile(), version);
+        if (delta == null) {
+            try (IndexSnapshot.Writer writer = new IndexSnapshot.Writer(journal.getDeltaFile())) {
+                IndexSnapshot.Writer.Segment segment = writer.segment();
+                for (String line : journal.getLines()) {
+                    segment.add(toVod(drive, line));
+                }
+                writer.commit(version);
+            }
+            delta = IndexSnapshot.open(journal.getDeltaFile(), version);
+            if (delta == null) {
+                throw new IOException("增量快照打开失败: " + journal.getDeltaFile());
+            }
         }
+        Logger.log("增量索引" + journal.getLines().size() + "条，耗时：" + (System.currentTimeMillis() - startTime));
+        return base.merge(delta);
     }
 
     /**
-     * 下载文件
+     * 拉取每日更新并增量合并到本地索引，索引还没加载时不做任何事
      *
-     * @param fileUrl  文件URL
-     * @param savePath 保存路径
+     * @param drive 所属的盘
+     * @return 新增的条数，拉取或合并失败时返回 -1
      */
-    private static void downloadFile(String fileUrl, String savePath) throws IOException {
-        URL url = new URL(fileUrl);
-        try (InputStream in = new BufferedInputStream(url.openStream());
-                FileOutputStream out = new FileOutputStream(savePath)) {
-            byte[] buffer = new byte[8 * 1024]; // 分块读取，每次读取 8KB
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+    public static int refresh(Drive drive) {
+        try {
+            List<String> lines = new ArrayList<>();
+            Document doc = Jsoup.parse(OkHttp.string(drive.dailySearchApi(DAILY_NUM)));
+            for (Element a : doc.select("ul > a")) {
+                String line = a.text();
+                if (line.contains("/")) lines.add(line);
+            }
+            if (lines.isEmpty()) {
+                Logger.log("增量更新失败：没有拿到每日更新");
+                return -1;
             }
-        } catch (IOException e) {
-            throw new IOException("下载文件失败: " + fileUrl, e);
+            return applyDaily(drive, lines);
+        } catch (Exception e) {
+            Logger.log("增量更新失败：" + e.getMessage());
+            return -1;
         }
     }
 
-    public static List<Vod> toVods(Drive drive, List<String> lines) {
-        FileBasedList<Vod> list = new FileBasedList<>(Vod.class);
-        FileBasedList<Vod> noPicList = new FileBasedList<>(Vod.class);
-        //List<Vod> list = new ArrayList<>();
-        //List<Vod> noPicList = new ArrayList<>();
-        
-        for (String line : lines) {
-            String[] splits = line.split("#");
-            int index = splits[0].lastIndexOf("/");
-            boolean file = Util.isMedia(splits[0]);
-            if (splits[0].endsWith("/")) {
-                file = false;
-                splits[0] = splits[0].substring(0, index);
-                index = splits[0].lastIndexOf("/");
+    /**
+     * 把每日更新的行合并到本地索引：
+     * 每日更新新的在前，只看上次高水位之前的行，高水位之后的上次已经处理过；
+     * 再按路径去掉增量日志和基础快照里已有的行，剩下的追加到日志，
+     * 有新行时才重建增量快照并替换发布的快照。基础快照不动
+     *
+     * @param drive 所属的盘
+     * @param lines 每日更新的索引行，新的在前
+     * @return 新增的条数
+     */
+    public static int applyDaily(Drive drive, List<String> lines) throws IOException {
+        Shard shard = shards.get(drive.getServer());
+        if (shard == null || lines.isEmpty()) {
+            return 0;
+        }
+        // 和发布快照用同一把锁：重新校验换基础快照时，增量合并不会基于旧快照发布，也不会两份日志同时追加
+        synchronized (shard) {
+            IndexSnapshot current = shard.published;
+            IndexJournal journal = shard.journal;
+            if (current == null || journal == null || journal.isRebased()) {
+                return 0;
             }
-            Item item = new Item();
-            item.setType(0); // 海报模式总是认为是文件模式，直接点击播放
-            item.doubanInfo.setId(splits.length >= 3 ? splits[2] : "");
-            item.doubanInfo.setRating(splits.length >= 4 ? splits[3] : "");
-            item.setThumb(splits.length >= 5 ? splits[4] : "");
-            item.setPath("/" + splits[0].substring(0, index));
-            String fileName = splits[0].substring(index + 1);
-            item.setName(fileName);
-            item.doubanInfo.setName(splits.length >= 2 ? splits[1] : fileName);
-            Vod vod = item.getVod(drive.getName(), drive.getVodPic());
-            vod.setVodRemarks(item.doubanInfo.getRating());
-            vod.setVodName(item.doubanInfo.getName());
-            vod.doubanInfo = item.doubanInfo;
-            if (!file) {
-                vod.setVodId(vod.getVodId() + "/~soulist");
-            } else {
-                vod.setVodId(vod.getVodId() + "/~soufile");
+            String mark = journal.getMark();
+            if (lines.get(0).equals(mark)) {
+                return 0;
             }
-            if (TextUtils.isEmpty(item.getThumb())) {
-                noPicList.add(vod);
-            } else {
-                list.add(vod);
+            long startTime = System.currentTimeMillis();
+            IndexSnapshot base = current.base();
+            List<String> fresh = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (String line : lines) {
+                if (line.equals(mark)) {
+                    break;
+                }
+                if (line.startsWith("./")) {
+                    line = line.substring(2);
+                }
+                String path = IndexJournal.path(line);
+                if (journal.contains(path) || !seen.add(path) || known(drive, base, line)) continue;
+                fresh.add(line);
+            }
+            journal.append(fresh, lines.get(0));
+            if (fresh.isEmpty()) {
+                return 0;
             }
+            IndexSnapshot merged = withDelta(drive, base, journal);
+            merged.catalog().facets();
+            merged.catalog().ids();
+            shard.published = merged;
+            Logger.log("增量更新" + fresh.size() + "条，耗时：" + (System.currentTimeMillis() - startTime));
+            return fresh.size();
         }
-        list.addAll(noPicList);
-        return list;
     }
 
     /**
-     * 解压文件（支持 ZIP 和 TGZ 格式）
+     * 索引行是否已经在基础快照里
+     */
+    private static boolean known(Drive drive, IndexSnapshot base, String line) {
+        Vod vod = toVod(drive, line);
+        return base.contains(vod.getVodIdWithoutDrivePrefix(), vod.getVodName());
+    }
+
+    /**
+     * 流式解析 tgz：Gzip 解压 → Tar 拆包 → 逐行解析写入快照分组
      *
-     * @param filePath   压缩文件路径
-     * @param extractDir 解压目录
+     * @param drive   所属的盘
+     * @param in      压缩包数据流
+     * @param segment 快照分组
      */
-    private static void unzipFile(String filePath, String extractDir) throws IOException {
-        createDirectoryIfNotExists(extractDir); // 确保解压目录存在
-
-        if (filePath.toLowerCase().endsWith(".zip")) {
-            // 处理 ZIP 文件
-            try (ZipFile zipFile = new ZipFile(filePath)) {
-                var entries = zipFile.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    Path entryPath = Paths.get(extractDir, entry.getName());
-                    if (entry.isDirectory()) {
-                        createDirectoryIfNotExists(entryPath.toString());
-                    } else {
-                        try (InputStream is = zipFile.getInputStream(entry)) {
-                            Files.copy(is, entryPath);
-                        }
-                    }
+    private static void parseArchive(Drive drive, InputStream in, IndexSnapshot.Writer.Segment segment)
+            throws IOException {
+        segment.reset();
+        long startTime = System.currentTimeMillis();
+        int count = 0;
+        try (TarArchiveInputStream ti = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new BufferedInputStream(in, 64 * 1024)))) {
+            TarArchiveEntry entry;
+            while ((entry = ti.getNextTarEntry()) != null) {
+                if (entry.isDirectory() || !entry.getName().endsWith(".txt")) {
+                    continue;
                 }
-            }
-        } else if (filePath.toLowerCase().endsWith(".tgz") || filePath.toLowerCase().endsWith(".tar.gz")) {
-            // 处理 TGZ 文件
-            try (InputStream fi = new FileInputStream(filePath);
-                    InputStream gi = new GzipCompressorInputStream(fi);
-                    TarArchiveInputStream ti = new TarArchiveInputStream(gi)) {
-                TarArchiveEntry entry;
-                while ((entry = ti.getNextTarEntry()) != null) {
-                    Path entryPath = Paths.get(extractDir, entry.getName());
-                    if (entry.isDirectory()) {
-                        createDirectoryIfNotExists(entryPath.toString());
-                    } else {
-                        try (OutputStream os = Files.newOutputStream(entryPath)) {
-                            byte[] buffer = new byte[1024 * 1024]; // 分块读取，每次读取 1MB
-                            int bytesRead;
-                            while ((bytesRead = ti.read(buffer)) != -1) {
-                                os.write(buffer, 0, bytesRead);
-                            }
-                        }
+                // 不关闭 reader，关闭会连带关闭整个 tar 流
+                BufferedReader reader = new BufferedReader(new InputStreamReader(ti, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("./")) {
+                        line = line.substring(2);
                     }
+                    if (!line.contains("/"))
+                        continue;
+                    segment.add(toVod(drive, line));
+                    count++;
                 }
             }
-        } else {
-            throw new IOException("不支持的文件格式: " + filePath);
         }
+        Logger.log("解析索引" + count + "条，耗时：" + (System.currentTimeMillis() - startTime));
     }
 
-    /**
-     * 删除目录中除了指定文件以外的所有文件
-     *
-     * @param dirPath      目录路径
-     * @param excludeFiles 需要排除的文件名（不删除这些文件）
-     */
-    private static void deleteFilesExclude(String dirPath, String... excludeFiles) throws IOException {
-        Path path = Paths.get(dirPath);
+    public static List<Vod> quickSearch(Drive drive, String keyword) {
 
-        // 如果目录不存在，直接返回
-        if (!Files.exists(path)) {
-            return;
+        IndexSnapshot snapshot = snapshot(drive);
+        if (snapshot == null) {
+            return new ArrayList<>();
         }
+        long startTime = System.currentTimeMillis();
+        List<Vod> vods = snapshot.search(keyword, QUICK_LIMIT);
+        Logger.log("本地搜索耗时：" + (System.currentTimeMillis() - startTime));
+        return vods;
+    }
 
-        // 如果路径不是目录，抛出异常
-        if (!Files.isDirectory(path)) {
-            throw new IOException("路径不是目录: " + dirPath);
+    /**
+     * 按 vodId 从本地索引取回 Vod，索引还没加载好时不等待
+     *
+     * @param drive 所属的盘
+     * @param vodId 带盘名前缀的 vodId
+     * @return 索引中没有时返回 null
+     */
+    public static Vod find(Drive drive, String vodId) {
+        if (!vodId.startsWith(drive.getName() + "/")) {
+            return null;
         }
-
-        try (var stream = Files.newDirectoryStream(path)) {
-            for (Path file : stream) {
-                // 检查是否需要排除该文件
-                boolean shouldExclude = false;
-                for (String excludeFile : excludeFiles) {
-                    if (file.getFileName().toString().equals(excludeFile)) {
-                        shouldExclude = true;
-                        break;
-                    }
-                }
-
-                if (!shouldExclude) {
-                    if (Files.isDirectory(file)) {
-                        // 如果是目录，递归删除
-                        deleteFilesExclude(file.toString(), excludeFiles);
-                        Files.delete(file); // 删除空目录
-                    } else {
-                        Files.delete(file);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw new IOException("删除文件失败: " + dirPath, e);
+        IndexSnapshot snapshot = published(drive);
+        if (snapshot == null) {
+            return null;
         }
+        long startTime = System.currentTimeMillis();
+        VodCatalog catalog = snapshot.catalog();
+        int i = catalog.indexOf(vodId.substring(drive.getName().length()));
+        Logger.log("本地索引查找耗时：" + (System.currentTimeMillis() - startTime));
+        return i < 0 ? null : catalog.get(i);
     }
 
     /**
-     * 删除指定文件
+     * 确保目录存在，如果不存在则创建
      *
      * @param dirPath 目录路径
-     * @param pattern 文件名模式（支持通配符 *，如果为 null 则删除所有文件）
      */
-    private static void deleteFiles(String dirPath, String pattern) throws IOException {
+    private static void createDirectoryIfNotExists(String dirPath) throws IOException {
         Path path = Paths.get(dirPath);
-
-        // 如果目录不存在，直接返回
         if (!Files.exists(path)) {
-            return;
+            Files.createDirectories(path);
         }
+    }
 
-        // 如果路径不是目录，抛出异常
-        if (!Files.isDirectory(path)) {
-            throw new IOException("路径不是目录: " + dirPath);
-        }
+    /**
+     * 把索引行转成 Vod，有海报的排在前面。
+     * 结果不多时全在内存里，超过 {@link SpillList#DEFAULT_THRESHOLD} 条才转存文件；
+     * 两部分用视图拼接，不复制
+     *
+     * @param drive 所属的盘
+     * @param lines 索引行
+     */
+    public static List<Vod> toVods(Drive drive, List<String> lines) {
+        long startTime = System.currentTimeMillis();
+        SpillList<Vod> list = new SpillList<>(Vod.class);
+        SpillList<Vod> noPicList = new SpillList<>(Vod.class);
 
-        try (var stream = pattern == null ? Files.newDirectoryStream(path) : Files.newDirectoryStream(path, pattern)) {
-            for (Path file : stream) {
-                if (Files.isDirectory(file)) {
-                    // 如果是目录，递归删除
-                    deleteFiles(file.toString(), null);
-                    Files.delete(file); // 删除空目录
-                } else {
-                    Files.delete(file);
-                }
+        for (String line : lines) {
+            Vod vod = toVod(drive, line);
+            if (vod.getVodPic().isEmpty()) {
+                noPicList.add(vod);
+            } else {
+                list.add(vod);
             }
-        } catch (IOException e) {
-            throw new IOException("删除文件失败: " + dirPath, e);
         }
+        Logger.log("转换索引" + (list.size() + noPicList.size()) + "条，耗时：" + (System.currentTimeMillis() - startTime));
+        return noPicList.isEmpty() ? list : list.isEmpty() ? noPicList : new ConcatList<>(list, noPicList);
     }
 
     /**
-     * 合并文件
+     * 解析一行索引
      *
-     * @param extractDir 解压目录
-     * @param outputFile 合并后的文件路径
+     * @param drive 所属的盘
+     * @param line  索引行，格式为 路径#片名#豆瓣ID#评分#海报
      */
-    private static void mergeFiles(String extractDir, String outputFile) throws IOException {
-        Path dirPath = Paths.get(extractDir);
-        Path outputFilePath = Paths.get(outputFile);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(outputFilePath)) {
-            try (var stream = Files.newDirectoryStream(dirPath, "*.txt")) {
-                for (Path file : stream) {
-                    // 跳过 outputFile
-                    if (file.equals(outputFilePath)) {
-                        continue;
-                    }
-
-                    try (BufferedReader reader = Files.newBufferedReader(file)) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("./")) {
-                                line = line.substring(2);
-                            }
-                            if (!line.contains("/"))
-                                continue;
-                            writer.write(line);
-                            writer.newLine();
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw new IOException("合并文件失败: " + extractDir, e);
+    private static Vod toVod(Drive drive, String line) {
+        String[] splits = line.split("#");
+        int index = splits[0].lastIndexOf("/");
+        boolean file = Util.isMedia(splits[0]);
+        if (splits[0].endsWith("/")) {
+            file = false;
+            splits[0] = splits[0].substring(0, index);
+            index = splits[0].lastIndexOf("/");
+        }
+        Item item = new Item();
+        item.setType(0); // 海报模式总是认为是文件模式，直接点击播放
+        item.doubanInfo.setId(splits.length >= 3 ? splits[2] : "");
+        item.doubanInfo.setRating(splits.length >= 4 ? splits[3] : "");
+        item.setThumb(splits.length >= 5 ? splits[4] : "");
+        item.setPath("/" + splits[0].substring(0, index));
+        String fileName = splits[0].substring(index + 1);
+        item.setName(fileName);
+        item.doubanInfo.setName(splits.length >= 2 ? splits[1] : fileName);
+        Vod vod = item.getVod(drive.getName(), drive.getVodPic());
+        vod.setVodRemarks(item.doubanInfo.getRating());
+        vod.setVodName(item.doubanInfo.getName());
+        vod.doubanInfo = item.doubanInfo;
+        if (!file) {
+            vod.setVodId(vod.getVodId() + "/~soulist");
+        } else {
+            vod.setVodId(vod.getVodId() + "/~soufile");
         }
+        return vod;
     }
 }
@@ -0,0 +1,337 @@
+package com.github.catvod.net;
+
+import android.text.TextUtils;
+import android.util.Base64;
+
+import com.github.catvod.spider.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 带条件请求和断点续传的文件下载。
+ * 目标文件旁边保存一个 .meta 记录 ETag/Last-Modified/长度/MD5，
+ * 下次下载时带上 If-None-Match/If-Modified-Since，服务器返回 304 且本地文件和保存的 MD5 一致时就不再下载；
+ * 中途断开时保留 .part，下次用 Range + If-Range 接着下载，完成后用第一次完整响应的 Content-MD5 校验整个文件。
+ * 传入 {@link Handler} 时响应体边下载边交给调用方处理，不必等文件落盘后再读一遍。
+ */
+public class OkDownload {
+
+    private static final int RETRY = 3;
+
+    public interface Handler {
+        void handle(InputStream in) throws IOException;
+    }
+
+    private final String url;
+    private final File file;
+    private final File part;
+    private final File meta;
+
+    private boolean modified;
+    private String etag;
+    private String lastModified;
+    private String md5;
+    private long length;
+    private long bytes;
+    private long ttfb;
+    private long elapsed;
+
+    public static OkDownload get(String url, File file) {
+        return new OkDownload(url, file);
+    }
+
+    private OkDownload(String url, File file) {
+        this.url = url;
+        this.file = file;
+        this.part = new File(file.getPath() + ".part");
+        this.meta = new File(file.getPath() + ".meta");
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 文件版本，ETag 优先，没有时用 Last-Modified 加长度
+     */
+    public String getVersion() {
+        if (!TextUtils.isEmpty(etag)) return etag;
+        if (!TextUtils.isEmpty(lastModified)) return lastModified + "/" + length;
+        return md5;
+    }
+
+    public long getTtfb() {
+        return ttfb;
+    }
+
+    public long getBytesPerSecond() {
+        return elapsed > 0 ? bytes * 1000 / elapsed : bytes;
+    }
+
+    public InputStream open() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    public OkDownload execute() throws IOException {
+        return execute(null);
+    }
+
+    /**
+     * 执行下载，失败时按已下载的部分续传，最多重试 {@link #RETRY} 次
+     *
+     * @param handler 文件有更新时处理完整内容，首次下载直接处理响应流，续传时在下载完成后处理文件；
+     *                返回 304 时不调用
+     */
+    public OkDownload execute(Handler handler) throws IOException {
+        Properties props = loadMeta();
+        IOException error = null;
+        for (int i = 0; i < RETRY; i++) {
+            try {
+                fetch(props, handler);
+                return this;
+            } catch (IOException e) {
+                error = e;
+                Logger.log("下载中断，准备续传：" + url + " " + e.getMessage());
+            }
+        }
+        throw new IOException("下载文件失败: " + url, error);
+    }
+
+    private void fetch(Properties props, Handler handler) throws IOException {
+        boolean cached = file.exists() && String.valueOf(file.length()).equals(props.getProperty("length"));
+        long offset = !cached && part.exists() ? part.length() : 0;
+        Request.Builder builder = new Request.Builder().url(url);
+        String validator = TextUtils.isEmpty(props.getProperty("etag")) ? props.getProperty("lastModified") : props.getProperty("etag");
+        if (cached) {
+            if (!TextUtils.isEmpty(props.getProperty("etag"))) builder.header("If-None-Match", props.getProperty("etag"));
+            if (!TextUtils.isEmpty(props.getProperty("lastModified"))) builder.header("If-Modified-Since", props.getProperty("lastModified"));
+        } else if (offset > 0 && !TextUtils.isEmpty(validator)) {
+            builder.header("Range", "bytes=" + offset + "-");
+            builder.header("If-Range", validator);
+        } else {
+            offset = 0;
+        }
+
+        boolean handled = false;
+        long start = System.currentTimeMillis();
+        try (Response response = OkHttp.newCall(builder.build())) {
+            ttfb = System.currentTimeMillis() - start;
+            if (response.code() == 304 && cached) {
+                // 复用本地文件前先按保存的 MD5 校验，没有校验值或不一致时删掉重新下载
+                String saved = props.getProperty("md5");
+                MessageDigest digest = md5();
+                digest(file, digest);
+                if (TextUtils.isEmpty(saved) || !saved.equals(hex(digest.digest()))) {
+                    file.delete();
+                    props.remove("length");
+                    saveMeta(props);
+                    throw new IOException(TextUtils.isEmpty(saved) ? "本地文件没有校验值: " + file : "本地文件校验失败: " + file);
+                }
+                modified = false;
+                etag = props.getProperty("etag");
+                lastModified = props.getProperty("lastModified");
+                md5 = props.getProperty("md5");
+                length = file.length();
+                Logger.log("未修改，跳过下载：" + url + " 首字节耗时：" + ttfb);
+                return;
+            }
+            if (response.code() == 416) {
+                part.delete();
+                throw new IOException("续传位置无效: " + offset);
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code());
+            }
+            if (response.code() != 206) {
+                offset = 0;
+            }
+            etag = response.header("ETag");
+            lastModified = response.header("Last-Modified");
+            props.setProperty("etag", etag == null ? "" : etag);
+            props.setProperty("lastModified", lastModified == null ? "" : lastModified);
+            String contentMd5 = response.header("Content-MD5");
+            if (offset == 0) {
+                // 整个文件的校验值只有完整响应里才有，记下来供续传完成后校验
+                props.setProperty("contentMd5", contentMd5 == null ? "" : contentMd5);
+            }
+            props.remove("length");
+            saveMeta(props);
+
+            ResponseBody body = response.body();
+            long expected = body.contentLength() < 0 ? -1 : offset + body.contentLength();
+            MessageDigest digest = md5(); // 整个文件
+            MessageDigest range = md5(); // 本次响应的内容
+            if (offset > 0) digest(part, digest);
+            try (OutputStream out = new FileOutputStream(part, offset > 0);
+                 InputStream in = new TeeInputStream(new DigestInputStream(new DigestInputStream(body.byteStream(), range), digest), out)) {
+                if (handler != null && offset == 0) {
+                    handler.handle(in);
+                    handled = true;
+                }
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) != -1) ;
+            } finally {
+                elapsed += System.currentTimeMillis() - start;
+            }
+
+            length = part.length();
+            if (expected >= 0 && length != expected) {
+                throw new IOException("文件长度不一致: " + length + "/" + expected);
+            }
+            md5 = hex(digest.digest());
+            // 206 的 Content-MD5 只覆盖本次的区间，整个文件和第一次完整响应的校验值比对
+            String fileMd5 = offset == 0 ? contentMd5 : props.getProperty("contentMd5");
+            boolean rangeOk = offset == 0 || TextUtils.isEmpty(contentMd5) || contentMd5.equals(base64(range.digest()));
+            boolean fileOk = TextUtils.isEmpty(fileMd5) || fileMd5.equals(base64(fromHex(md5)));
+            if (!rangeOk || !fileOk) {
+                part.delete();
+                props.remove("contentMd5");
+                saveMeta(props);
+                throw new IOException((rangeOk ? "文件校验失败: " : "续传部分校验失败: ") + url);
+            }
+            if (TextUtils.isEmpty(fileMd5) && (offset == 0 || TextUtils.isEmpty(contentMd5))) {
+                // 没有可比对的校验值时只记录下来，保存的 MD5 仍用于之后复用时校验
+                Logger.log("服务器没有提供校验值，未校验：" + url);
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("无法替换文件: " + file);
+            }
+            if (!part.renameTo(file)) {
+                throw new IOException("无法保存文件: " + file);
+            }
+            modified = true;
+            props.setProperty("length", String.valueOf(length));
+            props.setProperty("md5", md5);
+            saveMeta(props);
+            Logger.log("下载完成：" + url + " 大小：" + length + " 首字节耗时：" + ttfb + " 速度：" + getBytesPerSecond() + "B/s");
+        }
+        if (handler != null && !handled) {
+            try (InputStream in = open()) {
+                handler.handle(in);
+            }
+        }
+    }
+
+    private Properties loadMeta() {
+        Properties props = new Properties();
+        if (!meta.exists()) return props;
+        try (InputStream in = new FileInputStream(meta)) {
+            props.load(in);
+        } catch (IOException ignored) {
+        }
+        return props;
+    }
+
+    private void saveMeta(Properties props) throws IOException {
+        try (OutputStream out = new FileOutputStream(meta)) {
+            props.store(out, null);
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void digest(File file, MessageDigest digest) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) digest.update(buffer, 0, read);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                out.write(b);
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                out.write(b, off, read);
+                bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public void close() {
+            // 由外层负责关闭，处理方提前关闭流时剩余的数据仍需落盘
+        }
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        return bytes;
+    }
+
+    /**
+     * Content-MD5 头的格式：MD5 原始字节的 Base64
+     */
+    private static String base64(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    }
+}
@@ -16,6 +16,7 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import okhttp3.Call;
 import okhttp3.Dns;
 import okhttp3.Headers;
 import okhttp3.OkHttpClient;
@@ -27,6 +28,8 @@ public class OkHttp {
     public static final String POST = "POST";
     public static final String GET = "GET";
 
+    private static final ThreadLocal<List<Call>> tracked = new ThreadLocal<>();
+
     private OkHttpClient client;
 
     private static class Loader {
@@ -37,16 +40,44 @@ public class OkHttp {
         return Loader.INSTANCE;
     }
 
+    /**
+     * 之后当前线程发起的请求都记到 calls 里，任务超时时调用方可以逐个取消，正在读的连接会立即中断
+     *
+     * @param calls 记录请求的列表，传 null 停止记录
+     */
+    public static void track(List<Call> calls) {
+        if (calls == null) tracked.remove();
+        else tracked.set(calls);
+    }
+
+    /**
+     * 当前线程正在记录请求的列表，没有时返回 null
+     */
+    public static List<Call> tracking() {
+        return tracked.get();
+    }
+
+    static Call newCall(OkHttpClient client, Request request) {
+        Call call = client.newCall(request);
+        List<Call> calls = tracked.get();
+        if (calls != null) {
+            synchronized (calls) {
+                calls.add(call);
+            }
+        }
+        return call;
+    }
+
     public static Response newCall(Request request) throws IOException {
-        return client().newCall(request).execute();
+        return newCall(client(), request).execute();
     }
 
     public static Response newCall(String url) throws IOException {
-        return client().newCall(new Request.Builder().url(url).build()).execute();
+        return newCall(client(), new Request.Builder().url(url).build()).execute();
     }
 
     public static Response newCall(String url, Map<String, String> header) throws IOException {
-        return client().newCall(new Request.Builder().url(url).headers(Headers.of(header)).build()).execute();
+        return newCall(client(), new Request.Builder().url(url).headers(Headers.of(header)).build()).execute();
     }
 
     public static String string(String url) {
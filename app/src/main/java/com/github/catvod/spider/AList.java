@@ -13,8 +13,17 @@ import com.github.catvod.bean.Vod;
 import com.github.catvod.bean.alist.Drive;
 import com.github.catvod.bean.alist.XiaoyaLocalIndex;
 import com.github.catvod.bean.alist.Item;
+import com.github.catvod.bean.alist.IndexScheduler;
+import com.github.catvod.bean.alist.JobExecutor;
+import com.github.catvod.bean.alist.ListingCache;
+import com.github.catvod.bean.alist.ListCleaner;
+import com.github.catvod.bean.alist.Sampler;
 import com.github.catvod.bean.alist.Sorter;
+import com.github.catvod.bean.alist.TtlCache;
+import com.github.catvod.bean.alist.VodCache;
 import com.github.catvod.bean.alist.VodSorter;
+import com.github.catvod.bean.alist.VodCatalog;
+import com.github.catvod.bean.alist.VodCodec;
 import com.github.catvod.crawler.Spider;
 import com.github.catvod.crawler.SpiderDebug;
 import com.github.catvod.net.OkHttp;
@@ -25,19 +34,19 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document; 
 import org.jsoup.nodes.Element;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collector;
@@ -51,7 +60,23 @@ public class AList extends Spider {
     private String vodPic;
     private String ext;
     private String xiaoyaAlistToken;
-    private Map<String, Vod> vodMap = new HashMap<>();
+    private final VodCache vodCache = new VodCache(VOD_CACHE_SIZE, this::loadVod); // 详情页用的 Vod，未命中时从本地索引取回
+    private static final long VOD_CACHE_SIZE = 16 * 1024 * 1024; // Vod 缓存的容量，估算的字节数
+    private static final VodCodec VOD_CODEC = new VodCodec();
+    private static final int PREFETCH_PAGES = 4; // 评分排序时至少排好的页数
+    private static final long HOME_TIMEOUT = 10 * 1000; // 首页每日更新的期限
+    private static final long SEARCH_TIMEOUT = 15 * 1000; // 搜索的期限
+    private static final long SEARCH_SOFT_TIMEOUT = 3 * 1000; // 搜索先返回这段时间内响应的盘，慢的盘留到下一页
+    private static final long QUICK_TIMEOUT = 8 * 1000; // 快速搜索的期限
+    private static final long CATEGORY_TIMEOUT = 15 * 1000; // 分类列表的期限
+    private static final long DETAIL_TIMEOUT = 10 * 1000; // 详情页补搜的期限
+    private static final long WALK_TIMEOUT = 15 * 1000; // 遍历子目录的期限
+    private static final int WALK_MAX_DEPTH = 4; // 遍历子目录的最大层数
+    private static final int WALK_MAX_FOLDERS = 200; // 遍历的目录数上限
+    private static final int WALK_PARALLELISM = 4; // 每次遍历同时拉取的目录数
+    private final TtlCache<String, Query> queryCache = new TtlCache<>(60 * 1000, 8); // 分类结果缓存，1 分钟过期
+    private final ListingCache<List<Item>> listingCache = new ListingCache<>(5 * 60 * 1000, 30 * 60 * 1000, 512); // 目录列表缓存，5 分钟内不重新拉取
+    private final TtlCache<String, Search> searchCache = new TtlCache<>(5 * 60 * 1000, 16); // 搜索结果缓存，5 分钟过期
     public static Context appContext;
 
     private List<Filter> getFilter(String tid) {
@@ -140,6 +165,22 @@ public class AList extends Spider {
         }
     }
 
+    /**
+     * Vod 缓存未命中时按 vodId 从所属盘的本地索引取回
+     */
+    private Vod loadVod(String id) {
+        int slash = id.indexOf("/");
+        int index = slash < 0 || drives == null ? -1 : drives.indexOf(new Drive(id.substring(0, slash)));
+        return index < 0 ? null : XiaoyaLocalIndex.find(drives.get(index), id);
+    }
+
+    /**
+     * 缓存里的 Vod 可能和搜索结果列表的读缓存是同一个对象（FileBasedList 的读缓存），改之前先复制一份
+     */
+    private static Vod copy(Vod vod) {
+        return VOD_CODEC.decode(VOD_CODEC.encode(vod));
+    }
+
     private Drive getDrive(String name) {
         return drives.get(drives.indexOf(new Drive(name))).check();
     }
@@ -162,7 +203,9 @@ public class AList extends Spider {
         try {
             appContext = context;
             ext = extend;
+            Init.execute(ListCleaner::sweep);
             fetchRule();
+            IndexScheduler.schedule(defaultDrive);
         } catch (Exception ignored) {
         }
     }
@@ -181,22 +224,14 @@ public class AList extends Spider {
         List<Vod> list = new ArrayList<>();
         if (defaultDrive != null) {
             List<Job> jobs = new ArrayList<>();
-            ExecutorService executor = Executors.newCachedThreadPool();
             jobs.add(new Job(defaultDrive.check(), "~daily:1000"));
-            for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-                list.addAll(future.get());
+            for (List<Vod> vods : JobExecutor.invokeAll(jobs, HOME_TIMEOUT))
+                list.addAll(vods);
         }
 
-        Drive tmpDrive = defaultDrive;
+        // init 时规则可能还没拉到，这里再登记一次，已登记时不做任何事
+        IndexScheduler.schedule(defaultDrive);
         String result = Result.string(classes, list, filters);
-        Thread thread = new Thread(() -> {
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-            }
-            XiaoyaLocalIndex.downlodadAndUnzip(tmpDrive);
-        });
-        thread.start();
 
         // Logger.log(result);
         return result;
@@ -217,6 +252,7 @@ public class AList extends Spider {
     @Override
     public String detailContent(List<String> ids) throws Exception {
         String id = ids.get(0);
+        Logger.log("Vod缓存" + vodCache.stats());
         if (id.endsWith("~soulist") || id.endsWith("~playlist")) {
             return listDetailContent(ids);
         }
@@ -228,23 +264,48 @@ public class AList extends Spider {
 
     @Override
     public String searchContent(String keyword, boolean quick) throws Exception {
+        return searchContent(keyword, quick, "1");
+    }
+
+    /**
+     * 第一页返回软期限内响应的盘的结果，之后的页返回晚到的盘的结果；相同的搜索在缓存期内直接复用
+     */
+    @Override
+    public String searchContent(String keyword, boolean quick, String pg) throws Exception {
         fetchRule();
-        List<Vod> list = new ArrayList<>();
-        List<Job> jobs = new ArrayList<>();
-        ExecutorService executor = Executors.newCachedThreadPool();
-        for (Drive drive : drives) {
-            if (drive.search()) {
-                if (quick) {
-                    jobs.add(new Job(drive.check(), "~quick:" + keyword));
-                } else {
-                    jobs.add(new Job(drive.check(), "~search:" + keyword));
+        int page = 1;
+        try {
+            page = Integer.parseInt(pg);
+        } catch (NumberFormatException e) {
+        }
+        String cacheKey = (quick ? "~quick:" : "~search:") + keyword;
+        Search search = searchCache.get(cacheKey);
+        List<Vod> list;
+        if (page > 1) {
+            list = search == null ? new ArrayList<>() : search.page(page);
+        } else if (search != null) {
+            list = search.page(1);
+        } else {
+            List<Job> jobs = new ArrayList<>();
+            for (Drive drive : drives) {
+                if (drive.search()) {
+                    if (quick) {
+                        jobs.add(new Job(drive.check(), "~quick:" + keyword));
+                    } else {
+                        jobs.add(new Job(drive.check(), "~search:" + keyword));
+                    }
                 }
             }
+            search = new Search(jobs.size());
+            searchCache.put(cacheKey, search);
+            JobExecutor.stream(jobs, SEARCH_SOFT_TIMEOUT, quick ? QUICK_TIMEOUT : SEARCH_TIMEOUT, search);
+            list = search.page(1);
+            // 全部失败的搜索不缓存，下次重新搜
+            if (list.isEmpty() && !search.isPending()) searchCache.remove(cacheKey);
         }
-        for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-            list.addAll(future.get());
         // Logger.log(Result.string(list));
-        return Result.get().vod(list).page().string();
+        int count = search == null ? page : Math.max(page, search.pageCount());
+        return Result.get().vod(list).page(page, count, 0, list.size()).string();
     }
 
     @Override
@@ -292,15 +353,13 @@ public class AList extends Spider {
         } else {
             walkFolder(drive, path, from, url, false);
         }
-        Vod vod = vodMap.get(id);
+        Vod vod = vodCache.get(id);
         if (vod == null && id.endsWith("~soulist")) {
             String keyword = path.substring(path.indexOf("/") + 1);
             List<Job> jobs = new ArrayList<>();
-            ExecutorService executor = Executors.newCachedThreadPool();
             jobs.add(new Job(drive.check(), "~search:" + keyword));
-            for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-                future.get();
-            vod = vodMap.get(id);
+            JobExecutor.invokeAll(jobs, DETAIL_TIMEOUT);
+            vod = vodCache.get(id);
         }
         if (vod == null) {
             vod = new Vod();
@@ -308,6 +367,8 @@ public class AList extends Spider {
             vod.setVodName(name);
             vod.setVodPic(vodPic);
             vod.setVodDrive(drive.getName());
+        } else {
+            vod = copy(vod);
         }
         vod.setVodPlayFrom(from.toString());
         vod.setVodPlayUrl(url.toString());
@@ -320,6 +381,7 @@ public class AList extends Spider {
             vod.setVodYear(vod.doubanInfo.getYear());
             vod.setVodRemarks(vod.doubanInfo.getRating());
             vod.setTypeName(vod.doubanInfo.getType());
+            vodCache.put(id, vod); // 补全了豆瓣信息，重新估算大小
         }
         Logger.log(Result.string(vod));
         return Result.string(vod);
@@ -332,15 +394,13 @@ public class AList extends Spider {
         String path = id.substring(0, id.lastIndexOf("/"));
         String name = path.substring(path.lastIndexOf("/") + 1);
         Drive drive = getDrive(key);
-        Vod vod = vodMap.get(id);
+        Vod vod = vodCache.get(id);
         if (vod == null && id.endsWith("~soufile")) {
             String keyword = path.substring(path.indexOf("/") + 1);
             List<Job> jobs = new ArrayList<>();
-            ExecutorService executor = Executors.newCachedThreadPool();
             jobs.add(new Job(drive.check(), keyword));
-            for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-                future.get();
-            vod = vodMap.get(id);
+            JobExecutor.invokeAll(jobs, DETAIL_TIMEOUT);
+            vod = vodCache.get(id);
         }
         if (vod == null) {
             vod = new Vod();
@@ -348,6 +408,8 @@ public class AList extends Spider {
             vod.setVodName(name);
             vod.setVodPic(vodPic);
             vod.setVodDrive(drive.getName());
+        } else {
+            vod = copy(vod);
         }
         vod.setVodPlayFrom(drive.getName());
         vod.setVodPlayUrl(name + "$" + path);
@@ -360,6 +422,7 @@ public class AList extends Spider {
             vod.setVodYear(vod.doubanInfo.getYear());
             vod.setVodRemarks(vod.doubanInfo.getRating());
             vod.setTypeName(vod.doubanInfo.getType());
+            vodCache.put(id, vod); // 补全了豆瓣信息，重新估算大小
         }
         Logger.log(Result.string(vod));
         return Result.string(vod);
@@ -367,30 +430,104 @@ public class AList extends Spider {
 
     private void walkFolder(Drive drive, String path, StringBuilder from, StringBuilder url, Boolean recursive)
             throws Exception {
-        List<Item> items = getList(path, false);
-        String name = path.substring(path.lastIndexOf("/") + 1);
-        Sorter.sort("name", "asc", items);
-        List<String> playUrls = new ArrayList<>();
-        Boolean haveFile = false;
-        for (Item item : items)
-            if (item.isMedia(drive.isNew())) {
-                playUrls.add(item.getName() + "$" + item.getVodId(path) + findSubs(path, items));
-                haveFile = true;
-            }
-        if (haveFile) {
-            url.append("$$$" + TextUtils.join("#", playUrls));
-            from.append("$$$" + name);
-        }
+        long startTime = System.currentTimeMillis();
+        Folder root = new Folder(path, 0);
+        root.fetched = getList(path, false);
+        root.accept(drive, recursive ? WALK_MAX_DEPTH : 0);
+        int count = 1;
         if (recursive) {
-            for (Item item : items)
-                if (!item.isMedia(drive.isNew())) {
-                    walkFolder(drive, item.getVodId(path), from, url, recursive);
-                }
+            count = crawl(drive, root);
         }
+        append(drive, root, from, url);
         if (url.indexOf("$$$") == 0) {
             url.delete(0, 3);
             from.delete(0, 3);
         }
+        Logger.log("遍历目录" + count + "个，耗时：" + (System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * 按层拉取子目录，同一层的目录并行请求，同时最多 WALK_PARALLELISM 个，完成一个再提交下一个。
+     * 超过层数、目录数上限或期限的目录不再拉取
+     *
+     * @return 拉取过的目录数
+     */
+    private int crawl(Drive drive, Folder root) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WALK_TIMEOUT;
+        int count = 1;
+        List<Folder> level = root.children;
+        while (!level.isEmpty() && count < WALK_MAX_FOLDERS && System.currentTimeMillis() < deadline) {
+            level = level.subList(0, Math.min(level.size(), WALK_MAX_FOLDERS - count));
+            count += level.size();
+            List<Callable<Folder>> jobs = new ArrayList<>();
+            for (Folder folder : level) {
+                jobs.add(() -> {
+                    folder.fetched = getList(folder.path, false);
+                    return folder;
+                });
+            }
+            // 只采用按时完成的目录，超时的目录保持未拉取，结果不随完成先后变化
+            List<Folder> next = new ArrayList<>();
+            for (Folder folder : JobExecutor.invokeAll(jobs, WALK_PARALLELISM, deadline - System.currentTimeMillis())) {
+                folder.accept(drive, WALK_MAX_DEPTH);
+                next.addAll(folder.children);
+            }
+            level = next;
+        }
+        return count;
+    }
+
+    /**
+     * 按先序把每个目录的视频拼成一组播放列表：先是本目录的视频，再按名称顺序是各子目录
+     */
+    private void append(Drive drive, Folder folder, StringBuilder from, StringBuilder url) {
+        if (folder.items == null) {
+            return;
+        }
+        String name = folder.path.substring(folder.path.lastIndexOf("/") + 1);
+        List<String> playUrls = new ArrayList<>();
+        for (Item item : folder.items)
+            if (item.isMedia(drive.isNew()))
+                playUrls.add(item.getName() + "$" + item.getVodId(folder.path) + findSubs(folder.path, folder.items));
+        if (!playUrls.isEmpty()) {
+            url.append("$$$" + TextUtils.join("#", playUrls));
+            from.append("$$$" + name);
+        }
+        for (Folder child : folder.children)
+            append(drive, child, from, url);
+    }
+
+    /**
+     * 遍历中的一个目录
+     */
+    private static class Folder {
+
+        final String path;
+        final int depth;
+        final List<Folder> children = new ArrayList<>();
+        List<Item> fetched; // 工作线程拉到的列表
+        List<Item> items; // 采用后按名称排好序的列表，没拉到时为 null
+
+        Folder(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+
+        /**
+         * 采用拉到的列表，排好序并建出下一层的子目录
+         *
+         * @param maxDepth 子目录的最大层数
+         */
+        void accept(Drive drive, int maxDepth) {
+            items = fetched;
+            Sorter.sort("name", "asc", items);
+            if (depth >= maxDepth) {
+                return;
+            }
+            for (Item item : items)
+                if (item.isFolder())
+                    children.add(new Folder(item.getVodId(path), depth + 1));
+        }
     }
 
     private static Map<String, String> getPlayHeader(String url) {
@@ -413,26 +550,135 @@ public class AList extends Spider {
         fetchRule();
         List<Vod> list = new ArrayList<>();
         List<Job> jobs = new ArrayList<>();
-        ExecutorService executor = Executors.newCachedThreadPool();
         String key = tid.contains("/") ? tid.substring(0, tid.indexOf("/")) : tid;
         Drive drive = getDrive(key);
 
+        // 同一分类和筛选条件的结果短时间内复用，翻页不重新过滤排序
+        int page = 1;
+        try {
+            page = Integer.parseInt(pg);
+        } catch (NumberFormatException e) {
+        }
+        String cacheKey = tid + "|" + filter + "|" + (extend == null ? "" : new TreeMap<>(extend));
+        boolean random = filter && extend != null && !"0".equals(extend.getOrDefault("random", "0"));
+        Query query = queryCache.get(cacheKey);
+        if (query != null && query.sorted >= Math.min(page * Result.PAGE_SIZE, query.list.size())) {
+            if (random && page > 1) {
+                queryCache.put(cacheKey, query); // 翻页时续期，翻页期间随机结果不会过期重抽
+            }
+            return page(query.list, pg);
+        }
+        // 种子随缓存条目一起保存，条目存在期间重新排序也得到同一份随机结果
+        long seed = query != null ? query.seed : cacheKey.hashCode() * 31L + System.currentTimeMillis();
+
+        // 任务超时或失败时不缓存；本地索引还没加载好时拿到的是远程搜索的部分结果，也不缓存
+        boolean complete = false;
         if (!drive.getName().equals("每日更新")) {
             jobs.add(new Job(drive.check(), drive.getPath()));
-            for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-                list.addAll(future.get());
+            for (List<Vod> vods : JobExecutor.invokeAll(jobs, CATEGORY_TIMEOUT)) {
+                list = vods;
+                complete = vods instanceof VodCatalog;
+            }
         } else {
             jobs.add(new Job(drive.check(), "~daily:100000"));
-            for (Future<List<Vod>> future : executor.invokeAll(jobs, 15, TimeUnit.SECONDS))
-                list.addAll(future.get());
+            for (List<Vod> vods : JobExecutor.invokeAll(jobs, CATEGORY_TIMEOUT)) {
+                list.addAll(vods);
+                complete = true;
+            }
         }
 
+        // 评分排序只排到当前页（至少预排 PREFETCH_PAGES 页）；随机结果要整体固定下来，翻页时不能重新抽
+        int sorted = Integer.MAX_VALUE;
         if (filter) {
-            list = VodSorter.sortVods(list, extend);
+            sorted = random ? Integer.MAX_VALUE : Math.max(page, PREFETCH_PAGES) * Result.PAGE_SIZE;
+            list = VodSorter.sortVods(list, extend, sorted, new Sampler(seed));
+        }
+        if (complete) {
+            queryCache.put(cacheKey, new Query(list, sorted, seed));
         }
+        return page(list, pg);
+    }
 
+    /**
+     * 取一页，只有这一页的 Vod 会被创建并放入缓存
+     */
+    private String page(List<Vod> list, String pg) {
         // Logger.log(Result.string(list));
-        return Result.get().vod(list).page(pg, true).string();
+        Result result = Result.get().vod(list).page(pg, true);
+        for (Vod vod : result.getList()) {
+            vodCache.put(vod.getVodId(), vod);
+        }
+        return result.string();
+    }
+
+    /**
+     * 缓存的分类结果，前 sorted 条已经排好序，seed 是随机结果用的种子
+     */
+    private static class Query {
+
+        final List<Vod> list;
+        final int sorted;
+        final long seed;
+
+        Query(List<Vod> list, int sorted, long seed) {
+            this.list = list;
+            this.sorted = sorted;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * 一次搜索的结果，晚到的盘的结果陆续加进来；同一部片（豆瓣 id 相同）只保留最先到的。
+     * 每页的范围在第一次取到时固定下来，重复请求同一页或多个客户端翻页看到的都一样
+     */
+    private static class Search implements JobExecutor.Listener<List<Vod>> {
+
+        private final List<Vod> vods = new ArrayList<>();
+        private final Set<String> keys = new HashSet<>();
+        private int pending; // 还没响应的盘
+        private final List<Integer> ends = new ArrayList<>(); // 已经固定的各页的结束位置
+
+        Search(int pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public synchronized void onResult(List<Vod> result) {
+            pending--;
+            if (result == null) return;
+            for (Vod vod : result) {
+                String id = vod.doubanInfo == null ? null : vod.doubanInfo.getId();
+                String key = id == null || id.isEmpty() || id.equals("0") ? vod.getVodId() : "douban:" + id;
+                if (keys.add(key)) vods.add(vod);
+            }
+        }
+
+        synchronized boolean isPending() {
+            return pending > 0;
+        }
+
+        /**
+         * 取第 page 页：已经固定的页原样返回；紧接着的下一页是上一页之后到的全部结果，
+         * 有新结果时才固定下来（第一页总是固定），还没有新结果时返回空页，之后再取还能拿到
+         */
+        synchronized List<Vod> page(int page) {
+            int from = ends.isEmpty() ? 0 : ends.get(ends.size() - 1);
+            if (page == ends.size() + 1 && (page == 1 || vods.size() > from)) {
+                ends.add(vods.size());
+            }
+            if (page < 1 || page > ends.size()) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(vods.subList(page == 1 ? 0 : ends.get(page - 2), ends.get(page - 1)));
+        }
+
+        /**
+         * 已经固定的页数，还有盘没响应或有没分到页的结果时多算一页
+         */
+        synchronized int pageCount() {
+            int last = ends.isEmpty() ? 0 : ends.get(ends.size() - 1);
+            return ends.size() + (pending > 0 || vods.size() > last ? 1 : 0);
+        }
     }
 
     private String alistCategoryContent(String tid, String pg, boolean filter, HashMap<String, String> extend)
@@ -481,6 +727,8 @@ public class AList extends Spider {
             String userName = LoginDlg.showLoginDlg("用户名(留空默认guest)");
             String password = LoginDlg.showLoginDlg("密码(留空默认guest_Api789，\"alist-\"打头会被识别为alist token)");
             Logger.log("用户名:" + userName + "密码:" + password);
+            // 换了账号能看到的目录可能不同，这个服务器的目录缓存全部作废
+            listingCache.invalidate(drive.getServer());
             userName = userName.isEmpty() ? "guest" : userName;
             password = password.isEmpty() ? "guest_Api789" : password;
             params.put("username", userName);
@@ -548,11 +796,9 @@ public class AList extends Spider {
             String key = id.contains("/") ? id.substring(0, id.indexOf("/")) : id;
             String path = id.contains("/") ? id.substring(id.indexOf("/")) : "";
             Drive drive = getDrive(key);
-            path = path.startsWith(drive.getPath()) ? path : drive.getPath() + path;
-            JSONObject params = drive.getParamByPath(path);
-            params.put("path", path);
-            String response = post(drive, drive.listApi(), params.toString());
-            List<Item> items = Item.arrayFrom(getListJson(drive.isNew(), response));
+            String fullPath = path.startsWith(drive.getPath()) ? path : drive.getPath() + path;
+            // 缓存里的列表是共用的，复制一份再过滤排序
+            List<Item> items = new ArrayList<>(listingCache.get(drive.getServer() + fullPath, drive.getToken(), () -> fetchList(drive, fullPath)));
             Iterator<Item> iterator = items.iterator();
             if (filter)
                 while (iterator.hasNext())
@@ -564,6 +810,13 @@ public class AList extends Spider {
         }
     }
 
+    private List<Item> fetchList(Drive drive, String path) throws Exception {
+        JSONObject params = drive.getParamByPath(path);
+        params.put("path", path);
+        String response = post(drive, drive.listApi(), params.toString());
+        return Item.arrayFrom(getListJson(drive.isNew(), response));
+    }
+
     private String getListJson(boolean isNew, String response) throws Exception {
         if (isNew) {
             return new JSONObject(response).getJSONObject("data").getJSONArray("content").toString();
@@ -649,8 +902,16 @@ public class AList extends Spider {
                 vods = XiaoyaLocalIndex.toVods(drive, lines);
                 for (Vod vod : vods) {
                     //vod.setVodDrive(drive.getName());
-                    vodMap.put(vod.getVodId(), vod);
+                    vodCache.put(vod.getVodId(), vod);
                 }
+                // 顺便把每日更新合并进本地索引
+                Init.execute(() -> {
+                    try {
+                        XiaoyaLocalIndex.applyDaily(drive, lines);
+                    } catch (IOException e) {
+                        Logger.log("增量更新失败：" + e.getMessage());
+                    }
+                });
                 return vods;
             } else if (keyword.startsWith("~search:")) {
                 List<String> lines = new ArrayList<>();
@@ -664,17 +925,16 @@ public class AList extends Spider {
                 vods = XiaoyaLocalIndex.toVods(drive, lines);
                 for (Vod vod : vods) {
                     //vod.setVodDrive(drive.getName());
-                    vodMap.put(vod.getVodId(), vod);
+                    vodCache.put(vod.getVodId(), vod);
                 }
                 return vods;
             } else if (keyword.startsWith("~quick:")) {
-                XiaoyaLocalIndex.downlodadAndUnzip(drive);
                 //startTime = System.currentTimeMillis();
                 vods = XiaoyaLocalIndex.quickSearch(drive, shortKeyword);
                 //duration = System.currentTimeMillis() - startTime;
                 for (Vod vod : vods) {
                     //vod.setVodDrive(drive.getName());
-                    vodMap.put(vod.getVodId(), vod);
+                    vodCache.put(vod.getVodId(), vod);
                 }
                 //Logger.log("快速搜索耗时：" + duration);
                 return vods;
@@ -693,16 +953,22 @@ public class AList extends Spider {
                 }
             }
 
-            List<Vod> filteredVods = new ArrayList<>();
             startTime = System.currentTimeMillis();
-            for (Vod vod : vods) {
-                if (!vod.getVodIdWithoutDrivePrefix().startsWith(drive.getPath())) {
-                    continue;
-                }
-
+            if (vods instanceof VodCatalog) {
+                // 列式目录只按位置过滤，Vod 在分页后才创建
+                VodCatalog catalog = (VodCatalog) vods;
+                vods = drive.getPath().isEmpty() ? catalog : catalog.within(drive.getPath());
+                duration = System.currentTimeMillis() - startTime;
+                Logger.log("过滤目录耗时：" + duration);
+                return vods;
+            }
+            // 并行过滤，过滤完再逐个放入缓存
+            List<Vod> filteredVods = vods.parallelStream()
+                    .filter(vod -> vod.getVodIdWithoutDrivePrefix().startsWith(drive.getPath()))
+                    .collect(Collectors.toList());
+            for (Vod vod : filteredVods) {
                 //vod.setVodDrive(drive.getName());
-                filteredVods.add(vod);
-                vodMap.put(vod.getVodId(), vod);
+                vodCache.put(vod.getVodId(), vod);
             }
             duration = System.currentTimeMillis() - startTime;
             Logger.log("转换Vod耗时：" + duration);
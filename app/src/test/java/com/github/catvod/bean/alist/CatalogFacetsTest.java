@@ -0,0 +1,122 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.catvod.bean.alist.IndexSnapshotTest.vod;
+import static org.junit.Assert.*;
+
+public class CatalogFacetsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private VodCatalog catalog;
+    private CatalogFacets facets;
+
+    @Before
+    public void setUp() throws IOException {
+        catalog = IndexSnapshotTest.write(new File(folder.getRoot(), "s"), "v1",
+                vod("/电影/a/~soulist", "a", "p", "7.5"),
+                vod("/电影/b/~soulist", "b", "p", "9.1"),
+                vod("/电视剧/c/~soulist", "c", "p", "7.5"),
+                vod("/电影/d/~soulist", "d", "p", ""),
+                vod("/电视剧/e/~soulist", "e", "p", "10"),
+                vod("/电影/f/~soulist", "f", "p", "6.9")).catalog();
+        facets = catalog.facets();
+    }
+
+    private BitSet all() {
+        BitSet bits = new BitSet();
+        bits.set(0, catalog.size());
+        return bits;
+    }
+
+    private List<String> titles(int[] records) {
+        List<String> titles = new ArrayList<>();
+        for (int r : records) titles.add(catalog.getTitle(r));
+        return titles;
+    }
+
+    @Test
+    public void facetsAreBuiltOnce() {
+        assertSame(facets, catalog.facets());
+        assertSame(facets, catalog.view(new int[]{1}).facets());
+        assertEquals(6, facets.size());
+    }
+
+    @Test
+    public void subpathIsCached() {
+        BitSet movies = facets.subpath("/电影/");
+        assertEquals(4, movies.cardinality());
+        assertSame(movies, facets.subpath("/电影/"));
+        assertEquals(0, facets.subpath("/综艺/").cardinality());
+    }
+
+    @Test
+    public void selectWithoutSortKeepsRecordOrder() {
+        assertEquals(Arrays.asList("a", "b", "c", "e"), titles(facets.select(all(), 7, CatalogFacets.SORT_NONE)));
+        assertEquals(Arrays.asList("a", "b", "c", "e"), titles(facets.select(all(), 7.5f, CatalogFacets.SORT_NONE)));
+        assertEquals(Arrays.asList("b", "e"), titles(facets.select(all(), 7.6f, CatalogFacets.SORT_NONE)));
+        assertEquals(Arrays.asList("e"), titles(facets.select(all(), 10, CatalogFacets.SORT_NONE)));
+        assertEquals(0, facets.select(all(), 10.5f, CatalogFacets.SORT_NONE).length);
+        assertEquals(6, facets.select(all(), 0, CatalogFacets.SORT_NONE).length); // 没有评分按 0 分
+    }
+
+    @Test
+    public void selectSortsStably() {
+        // 同分按记录顺序
+        assertEquals(Arrays.asList("e", "b", "a", "c", "f", "d"), titles(facets.select(all(), 0, CatalogFacets.SORT_DESC)));
+        assertEquals(Arrays.asList("d", "f", "a", "c", "b", "e"), titles(facets.select(all(), 0, CatalogFacets.SORT_ASC)));
+        assertEquals(Arrays.asList("e", "b", "a", "c"), titles(facets.select(all(), 7.5f, CatalogFacets.SORT_DESC)));
+        assertEquals(Arrays.asList("a", "c", "b", "e"), titles(facets.select(all(), 7.5f, CatalogFacets.SORT_ASC)));
+    }
+
+    @Test
+    public void selectWithinScope() {
+        BitSet movies = (BitSet) facets.subpath("/电影/").clone();
+        assertEquals(Arrays.asList("b", "a", "f"), titles(facets.select((BitSet) movies.clone(), 6, CatalogFacets.SORT_DESC)));
+        assertEquals(Arrays.asList("f", "a", "b"), titles(facets.select((BitSet) movies.clone(), 6, CatalogFacets.SORT_ASC)));
+        assertEquals(Arrays.asList("a", "b", "f"), titles(facets.select(movies, 6, CatalogFacets.SORT_NONE)));
+    }
+
+    @Test
+    public void selectMatchesBruteForce() throws IOException {
+        Random random = new Random(3);
+        List<Vod> vods = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String rating = random.nextInt(5) == 0 ? "" : String.valueOf(random.nextInt(101) / 10f);
+            vods.add(vod("/d" + random.nextInt(4) + "/" + i + "/~soulist", String.valueOf(i), "p", rating));
+        }
+        VodCatalog big = IndexSnapshotTest.write(new File(folder.getRoot(), "big"), "v1", vods.toArray(new Vod[0])).catalog();
+        CatalogFacets bigFacets = big.facets();
+        for (float threshold : new float[]{0, 3.3f, 5, 8.75f, 10}) {
+            BitSet scope = (BitSet) bigFacets.subpath("/d2/").clone();
+            int[] desc = bigFacets.select((BitSet) scope.clone(), threshold, CatalogFacets.SORT_DESC);
+            int[] none = bigFacets.select((BitSet) scope.clone(), threshold, CatalogFacets.SORT_NONE);
+            int expected = 0;
+            for (int r = scope.nextSetBit(0); r >= 0; r = scope.nextSetBit(r + 1)) {
+                if (big.getRating(r) >= threshold) expected++;
+            }
+            assertEquals(expected, desc.length);
+            assertEquals(expected, none.length);
+            for (int i = 1; i < desc.length; i++) {
+                assertTrue(big.getRating(desc[i - 1]) > big.getRating(desc[i])
+                        || big.getRating(desc[i - 1]) == big.getRating(desc[i]) && desc[i - 1] < desc[i]);
+                assertTrue(none[i - 1] < none[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FileBasedListTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path(String name) {
+        return new File(folder.getRoot(), name).getPath();
+    }
+
+    private static List<String> items(int count) {
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) items.add("第" + i + "条");
+        return items;
+    }
+
+    @Test
+    public void getReadsFlushedAndBufferedItems() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(2500)); // 前 2000 条落盘，后 500 条还在写缓存里
+            assertEquals(2500, list.size());
+            assertEquals("第0条", list.get(0));
+            assertEquals("第1999条", list.get(1999));
+            assertEquals("第2000条", list.get(2000));
+            assertEquals("第2499条", list.get(2499));
+        }
+    }
+
+    @Test
+    public void getOutOfRangeThrows() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.add("x");
+            for (int index : new int[]{-1, 1}) {
+                try {
+                    list.get(index);
+                    fail();
+                } catch (IndexOutOfBoundsException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsSeeLaterAppends() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(1000));
+            assertEquals("第999条", list.get(999)); // 映射到这里为止
+            list.addAll(items(1000));
+            assertEquals("第999条", list.get(1999)); // 追加后映射作废，重新映射
+            assertEquals("第0条", list.get(1000));
+        }
+    }
+
+    @Test
+    public void textLinesMayEndWithCrLf() throws IOException {
+        File file = new File(path("crlf.list"));
+        Files.write(file.toPath(), "\"a\"\r\n\"b\"\r\n\"c\"".getBytes(StandardCharsets.UTF_8));
+        try (FileBasedList<String> list = new FileBasedList<>(file.getPath(), String.class)) {
+            assertEquals(3, list.size());
+            assertEquals("a", list.get(0));
+            assertEquals("b", list.get(1));
+            assertEquals("c", list.get(2));
+        }
+    }
+
+    @Test
+    public void concurrentReadersShareMapping() throws Exception {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(20000));
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int offset = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = offset; i < 20000; i += 7) {
+                            if (!list.get(i).equals("第" + i + "条")) return false;
+                        }
+                        return true;
+                    }));
+                }
+                for (Future<Boolean> future : futures) assertTrue(future.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void offsetIndexIsWrittenAndReused() throws IOException {
+        String path = path("a.list");
+        File index = new File(path + ".idx");
+        try (FileBasedList<String> list = new FileBasedList<>(path, String.class)) {
+            list.addAll(items(1000));
+            assertEquals(8 + 1000 * 8, index.length());
+            list.addAll(items(1000));
+            assertEquals("追加时只写新增的位置", 8 + 2000 * 8, index.length());
+        }
+        try (FileBasedList<String> list = new FileBasedList<>(path, String.class)) {
+            assertEquals(2000, list.size());
+            assertEquals("第500条", list.get(1500));
+        }
+    }
+
+    @Test
+    public void staleOffsetIndexIsRebuilt() throws IOException {
+        String path = path("a.list");
+        try (FileBasedList<String> list = new FileBasedList<>(path, String.class)) {
+            list.addAll(items(1000));
+        }
+        // 别处追加了两行，索引里记录的文件长度对不上
+        Files.write(new File(path).toPath(), "\"x\"\n\"y\"\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (FileBasedList<String> list = new FileBasedList<>(path, String.class)) {
+            assertEquals(1002, list.size());
+            assertEquals("y", list.get(1001));
+        }
+        assertEquals(8 + 1002 * 8, new File(path + ".idx").length());
+    }
+
+    @Test
+    public void appendAfterUnterminatedLastLine() throws IOException {
+        File file = new File(path("a.list"));
+        Files.write(file.toPath(), "\"a\"\n\"b\"".getBytes(StandardCharsets.UTF_8));
+        try (FileBasedList<String> list = new FileBasedList<>(file.getPath(), String.class)) {
+            list.addAll(items(1000));
+            assertEquals(1002, list.size());
+            assertEquals("b", list.get(1));
+            assertEquals("第0条", list.get(2));
+        }
+        try (FileBasedList<String> list = new FileBasedList<>(file.getPath(), String.class)) {
+            assertEquals("第999条", list.get(1001));
+        }
+    }
+
+    @Test
+    public void truncatedBinaryRecordIsDropped() throws IOException {
+        String path = path("v.list");
+        try (FileBasedList<Vod> list = new FileBasedList<>(path, new VodCodec())) {
+            for (int i = 0; i < 1000; i++) list.add(VodCodecTest.full(i));
+        }
+        File file = new File(path);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3); // 最后一条写到一半
+        }
+        try (FileBasedList<Vod> list = new FileBasedList<>(path, new VodCodec())) {
+            assertEquals(999, list.size());
+            assertEquals(VodCodecTest.full(998).getVodId(), list.get(998).getVodId());
+        }
+    }
+
+    @Test
+    public void addAllCopiesBytesAndShiftsOffsets() throws IOException {
+        File other = new File(path("b.list"));
+        Files.write(other.toPath(), "\"b0\"\n\"b1\"".getBytes(StandardCharsets.UTF_8));
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class);
+             FileBasedList<String> source = new FileBasedList<>(other.getPath(), String.class)) {
+            list.addAll(items(1000));
+            list.add("缓存里的");
+            list.addAll(source);
+            list.add("之后");
+            assertEquals(1004, list.size());
+            assertEquals("缓存里的", list.get(1000));
+            assertEquals("b0", list.get(1001));
+            assertEquals("b1", list.get(1002));
+            assertEquals("之后", list.get(1003));
+        }
+    }
+
+    @Test
+    public void parallelStreamKeepsOrder() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(10300)); // 最后 300 条在写缓存里
+            assertEquals(items(10300), list.stream().parallel().collect(Collectors.toList()));
+            assertEquals(10300, list.stream().parallel().filter(s -> s.startsWith("第")).count());
+        }
+    }
+
+    @Test
+    public void indexedStreamCarriesLineNumbers() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(3000));
+            list.indexedStream().parallel().forEach(item -> assertEquals("第" + item.getLineNumber() + "条", item.getItem()));
+            assertEquals(3000, list.indexedStream().parallel().mapToInt(FileBasedList.IndexedItem::getLineNumber).distinct().count());
+        }
+    }
+
+    @Test
+    public void spliteratorSplitsExactly() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(2001));
+            Spliterator<String> suffix = list.spliterator();
+            assertTrue(suffix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+            Spliterator<String> prefix = suffix.trySplit();
+            assertEquals(1000, prefix.estimateSize());
+            assertEquals(1001, suffix.estimateSize());
+            List<String> seen = new ArrayList<>();
+            assertTrue(suffix.tryAdvance(seen::add));
+            assertEquals("第1000条", seen.get(0));
+            assertEquals(1000, suffix.estimateSize());
+            assertNull("切出的半段不足最小长度时不再切分", prefix.trySplit());
+        }
+    }
+
+    @Test
+    public void readCacheReturnsSameObject() {
+        try (FileBasedList<Vod> list = new FileBasedList<>(path("v.list"), new VodCodec())) {
+            for (int i = 0; i < 1000; i++) list.add(VodCodecTest.full(i));
+            Vod first = list.get(10);
+            assertSame(first, list.get(10));
+            assertNotSame("同一块里的其他记录各自解码", first, list.get(11));
+        }
+    }
+
+    @Test
+    public void readCacheEvictsLeastRecentBlock() {
+        try (FileBasedList<Vod> list = new FileBasedList<>(path("v.list"), new VodCodec())) {
+            for (int i = 0; i < 6000; i++) list.add(VodCodecTest.full(i));
+            Vod first = list.get(0);
+            Vod recent = list.get(256);
+            for (int block = 2; block < 17; block++) {
+                list.get(block * 256);
+                assertSame(recent, list.get(256)); // 一直在用的块不会被淘汰
+            }
+            list.get(17 * 256);
+            assertNotSame(first, list.get(0));
+            assertEquals(first.getVodId(), list.get(0).getVodId());
+        }
+    }
+
+    @Test
+    public void clearDropsReadCache() {
+        try (FileBasedList<String> list = new FileBasedList<>(path("a.list"), String.class)) {
+            list.addAll(items(1000));
+            assertEquals("第5条", list.get(5));
+            list.clear();
+            assertEquals(0, list.size());
+            for (int i = 0; i < 1000; i++) list.add("新" + i);
+            assertEquals("新5", list.get(5));
+        }
+    }
+
+    @Test
+    public void closeFlushesWriteBuffer() {
+        String path = path("a.list");
+        FileBasedList<String> list = new FileBasedList<>(path, String.class);
+        list.addAll(items(1500));
+        list.close();
+        assertEquals(0, list.size());
+        assertEquals(8 + 1500 * 8, new File(path + ".idx").length());
+        try (FileBasedList<String> reopened = new FileBasedList<>(path, String.class)) {
+            assertEquals(1500, reopened.size());
+            assertEquals("第1499条", reopened.get(1499));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IndexJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> read() throws IOException {
+        return Files.readAllLines(new File(folder.getRoot(), "index.delta.txt").toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void appendedLinesSurviveReopen() throws IOException {
+        IndexJournal journal = IndexJournal.open(folder.getRoot(), "v1");
+        journal.append(Arrays.asList("电影/a/#A#1#8", "./电影/b.mkv#B", "电影/a#A2"), "top");
+        IndexJournal reopened = IndexJournal.open(folder.getRoot(), "v1");
+        assertFalse(reopened.isRebased());
+        assertEquals(Arrays.asList("电影/a/#A#1#8", "./电影/b.mkv#B"), reopened.getLines());
+        assertTrue(reopened.contains("电影/b.mkv"));
+        assertEquals("top", reopened.getMark());
+        assertEquals("v1#2", reopened.getDeltaVersion());
+    }
+
+    @Test
+    public void newBaseKeepsOnlyLinesItLacks() throws IOException {
+        IndexJournal journal = IndexJournal.open(folder.getRoot(), "v1");
+        journal.append(Arrays.asList("电影/a#A", "电影/b#B", "电影/c#C"), "top");
+        assertTrue(new File(folder.getRoot(), "index.delta").createNewFile());
+
+        IndexJournal rebased = IndexJournal.open(folder.getRoot(), "v2");
+        assertTrue(rebased.isRebased());
+        assertFalse("旧基础上的增量快照作废", new File(folder.getRoot(), "index.delta").exists());
+        try {
+            rebased.append(Collections.singletonList("电影/d#D"), "next");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        rebased.compact(line -> !line.startsWith("电影/b"));
+        assertFalse(rebased.isRebased());
+        assertEquals(Arrays.asList("电影/a#A", "电影/c#C"), rebased.getLines());
+        assertFalse(rebased.contains("电影/b"));
+        assertEquals(Arrays.asList("#base v2", "电影/a#A", "电影/c#C", "#mark top"), read());
+        assertEquals(rebased.getLines(), IndexJournal.open(folder.getRoot(), "v2").getLines());
+    }
+
+    @Test
+    public void marksAreCompacted() throws IOException {
+        IndexJournal journal = IndexJournal.open(folder.getRoot(), "v1");
+        journal.append(Collections.singletonList("电影/a#A"), "m0");
+        for (int i = 1; i <= 200; i++) {
+            journal.append(Collections.emptyList(), "m" + i);
+        }
+        List<String> lines = read();
+        assertTrue(lines.size() < 70);
+        assertEquals("#base v1", lines.get(0));
+        assertEquals("电影/a#A", lines.get(1));
+        IndexJournal reopened = IndexJournal.open(folder.getRoot(), "v1");
+        assertEquals("m200", reopened.getMark());
+        assertEquals(Collections.singletonList("电影/a#A"), reopened.getLines());
+    }
+
+    @Test
+    public void garbageJournalIsDropped() throws IOException {
+        Files.write(new File(folder.getRoot(), "index.delta.txt").toPath(), "电影/a#A\n".getBytes(StandardCharsets.UTF_8));
+        IndexJournal journal = IndexJournal.open(folder.getRoot(), "v1");
+        assertTrue(journal.getLines().isEmpty());
+        assertFalse(journal.isRebased());
+    }
+}
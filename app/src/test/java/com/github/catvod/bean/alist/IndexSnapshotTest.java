@@ -0,0 +1,165 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IndexSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 和索引行解析出来的一样：vodId 带盘名前缀，片名默认是文件名
+     */
+    static Vod vod(String id, String name, String pic, String rating) {
+        Vod vod = new Vod("盘" + id, name, pic, rating);
+        vod.doubanInfo.setId(rating.isEmpty() ? "" : "db" + name);
+        vod.doubanInfo.setRating(rating);
+        return vod;
+    }
+
+    static IndexSnapshot write(File file, String version, Vod... vods) throws IOException {
+        try (IndexSnapshot.Writer writer = new IndexSnapshot.Writer(file)) {
+            IndexSnapshot.Writer.Segment segment = writer.segment();
+            for (Vod vod : vods) segment.add(vod);
+            writer.commit(version);
+        }
+        return IndexSnapshot.open(file, version);
+    }
+
+    private File file(String name) {
+        return new File(folder.getRoot(), name);
+    }
+
+    @Test
+    public void roundTripsColumns() throws IOException {
+        IndexSnapshot snapshot = write(file("s"), "v1",
+                vod("/电影/流浪地球/~soulist", "流浪地球", "http://pic/1.jpg", "7.9"),
+                vod("/电影/无题.mkv/~soufile", "无题.mkv", "", ""));
+        assertNotNull(snapshot);
+        assertEquals("v1", snapshot.getVersion());
+        VodCatalog catalog = snapshot.named("盘").catalog();
+        assertEquals(2, catalog.size());
+        Vod first = catalog.get(0);
+        assertEquals("盘/电影/流浪地球/~soulist", first.getVodId());
+        assertEquals("流浪地球", first.getVodName());
+        assertEquals("http://pic/1.jpg", first.getVodPic());
+        assertEquals("7.9", first.getVodRemarks());
+        assertEquals("db流浪地球", first.doubanInfo.getId());
+        assertEquals(7.9f, catalog.getRating(0), 0.001);
+        assertTrue(catalog.hasPic(0));
+        assertFalse(catalog.isFile(0));
+        assertEquals("/电影/无题.mkv/~soufile", catalog.getId(1));
+        assertTrue(catalog.isFile(1));
+        assertEquals(0, catalog.getRating(1), 0); // 没有评分按 0 分
+    }
+
+    @Test
+    public void recordsWithPicComeFirst() throws IOException {
+        IndexSnapshot snapshot = write(file("s"), "v1",
+                vod("/a/1/~soulist", "1", "", "1"),
+                vod("/a/2/~soulist", "2", "p", "2"),
+                vod("/a/3/~soulist", "3", "", "3"),
+                vod("/a/4/~soulist", "4", "p", "4"));
+        VodCatalog catalog = snapshot.catalog();
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) titles.add(catalog.getTitle(i));
+        assertEquals(Arrays.asList("2", "4", "1", "3"), titles);
+    }
+
+    @Test
+    public void openChecksVersionAndFormat() throws IOException {
+        File file = file("s");
+        write(file, "v1", vod("/a/b/~soulist", "b", "", ""));
+        assertNotNull(IndexSnapshot.open(file, "v1"));
+        assertNull("版本不一致", IndexSnapshot.open(file, "v2"));
+        assertEquals("不校验版本时沿用旧快照", "v1", IndexSnapshot.open(file, null).getVersion());
+        assertNull(IndexSnapshot.open(file("missing"), null));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(1); // 旧格式
+        }
+        assertNull(IndexSnapshot.open(file, null));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(10);
+        }
+        assertNull(IndexSnapshot.open(file, null));
+    }
+
+    @Test
+    public void commitReplacesAtomically() throws IOException {
+        File file = file("s");
+        IndexSnapshot old = write(file, "v1", vod("/a/旧/~soulist", "旧", "", ""));
+        IndexSnapshot replaced = write(file, "v2", vod("/a/新/~soulist", "新", "", ""), vod("/a/新2/~soulist", "新2", "", ""));
+        assertEquals(2, replaced.catalog().size());
+        assertEquals("已经映射旧快照的读者不受影响", "旧", old.catalog().getTitle(0));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void uncommittedWriterLeavesNothing() throws IOException {
+        File file = file("s");
+        try (IndexSnapshot.Writer writer = new IndexSnapshot.Writer(file)) {
+            writer.segment().add(vod("/a/b/~soulist", "b", "", ""));
+        }
+        assertFalse(file.exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void resetSegmentDropsRecords() throws IOException {
+        File file = file("s");
+        try (IndexSnapshot.Writer writer = new IndexSnapshot.Writer(file)) {
+            IndexSnapshot.Writer.Segment first = writer.segment();
+            IndexSnapshot.Writer.Segment second = writer.segment();
+            second.add(vod("/b/1/~soulist", "1", "", ""));
+            first.add(vod("/a/中断/~soulist", "中断", "", ""));
+            first.reset();
+            first.add(vod("/a/重来/~soulist", "重来", "", ""));
+            writer.commit("v1");
+        }
+        VodCatalog catalog = IndexSnapshot.open(file, "v1").catalog();
+        assertEquals(2, catalog.size());
+        assertEquals("重来", catalog.getTitle(0)); // 按分组顺序，不按写入先后
+        assertEquals("1", catalog.getTitle(1));
+    }
+
+    @Test
+    public void findByNameAndContains() throws IOException {
+        IndexSnapshot snapshot = write(file("s"), "v1",
+                vod("/电影/英雄/~soulist", "英雄", "", "7"),
+                vod("/电视剧/英雄/~soulist", "英雄", "", "6"),
+                vod("/电影/英雄本色/~soulist", "英雄本色", "", "8"));
+        assertEquals(2, snapshot.findByName("英雄").size());
+        assertEquals(0, snapshot.findByName("英").size());
+        assertTrue(snapshot.contains("/电视剧/英雄/~soulist", "英雄"));
+        assertFalse(snapshot.contains("/综艺/英雄/~soulist", "英雄"));
+    }
+
+    @Test
+    public void mergePutsDeltaFirst() throws IOException {
+        IndexSnapshot base = write(file("base"), "v1", vod("/a/老片/~soulist", "老片", "", "")).named("盘");
+        IndexSnapshot delta = write(file("delta"), "v1#1", vod("/a/新片/~soulist", "新片", "", ""));
+        IndexSnapshot merged = base.merge(delta);
+        assertEquals("v1", merged.getVersion());
+        assertSame(base, merged.base());
+        assertSame(base, merged.merge(delta).base()); // 再次合并仍基于基础快照
+        assertEquals(2, merged.catalog().size());
+        assertEquals("盘/a/新片/~soulist", merged.catalog().get(0).getVodId());
+        assertEquals("盘/a/老片/~soulist", merged.findByName("老片").get(0).getVodId());
+        assertTrue(merged.contains("/a/新片/~soulist", "新片"));
+    }
+}
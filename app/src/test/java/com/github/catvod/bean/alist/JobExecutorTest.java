@@ -0,0 +1,142 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class JobExecutorTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int QUEUE_SIZE = 64;
+
+    private static Callable<String> value(String value, long delay) {
+        return () -> {
+            Thread.sleep(delay);
+            return value;
+        };
+    }
+
+    /**
+     * 一直阻塞到被中断，记录是否被中断
+     */
+    private static Callable<String> blocking(CountDownLatch interrupted) {
+        return () -> {
+            try {
+                Thread.sleep(60 * 1000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "不会到这里";
+        };
+    }
+
+    @Test
+    public void invokeAllDropsLateAndFailedJobs() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long startTime = System.currentTimeMillis();
+        List<String> results = JobExecutor.invokeAll(Arrays.asList(
+                value("a", 0),
+                blocking(interrupted),
+                () -> {
+                    throw new IllegalStateException("出错");
+                },
+                value("d", 50)), 300);
+        assertEquals("按提交顺序", Arrays.asList("a", "d"), results);
+        assertTrue(System.currentTimeMillis() - startTime < 2000);
+        assertTrue("到期的任务被中断", interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void overflowIsRejectedNotRunOnCaller() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(THREADS);
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        List<Thread> runners = new CopyOnWriteArrayList<>();
+        List<Callable<String>> jobs = new ArrayList<>();
+        for (int i = 0; i < THREADS + QUEUE_SIZE + 20; i++) {
+            int n = i;
+            Callable<String> job = blocking(interrupted);
+            jobs.add(() -> {
+                ran.add(n);
+                runners.add(Thread.currentThread());
+                return job.call();
+            });
+        }
+        long startTime = System.currentTimeMillis();
+        assertTrue(JobExecutor.invokeAll(jobs, 300).isEmpty());
+        assertTrue(System.currentTimeMillis() - startTime < 2000);
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertFalse("调用线程不执行任务", runners.contains(Thread.currentThread()));
+        for (int n : ran) assertTrue("队列满时提交的任务不执行", n < THREADS + QUEUE_SIZE);
+    }
+
+    @Test
+    public void slidingWindowBoundsParallelism() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> jobs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int n = i;
+            jobs.add(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return n;
+            });
+        }
+        List<Integer> results = JobExecutor.invokeAll(jobs, 3, 5000);
+        assertEquals(12, results.size());
+        for (int i = 0; i < 12; i++) assertEquals(i, results.get(i).intValue());
+        assertTrue(peak.get() <= 3);
+    }
+
+    @Test
+    public void slidingWindowStopsSubmittingAtDeadline() throws InterruptedException {
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Integer>> jobs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            jobs.add(() -> {
+                started.incrementAndGet();
+                Thread.sleep(100);
+                return n;
+            });
+        }
+        List<Integer> results = JobExecutor.invokeAll(jobs, 2, 250);
+        assertTrue(results.size() >= 2 && results.size() <= 6);
+        Thread.sleep(200);
+        assertTrue("到期后剩下的任务不再提交", started.get() <= 8);
+    }
+
+    @Test
+    public void streamReturnsAtSoftDeadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(3);
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        Thread caller = Thread.currentThread();
+        List<Boolean> onCaller = Collections.synchronizedList(new ArrayList<>());
+        int pending = JobExecutor.stream(Arrays.asList(value("快", 0), value("慢", 300), blocking(interrupted)), 100, 800, result -> {
+            results.add(result);
+            onCaller.add(Thread.currentThread() == caller);
+            delivered.countDown();
+        });
+        assertEquals(2, pending);
+        assertEquals(Collections.singletonList("快"), results);
+        assertTrue(delivered.await(3, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals("每个任务恰好回调一次", Arrays.asList("快", "慢", null), results);
+        assertEquals(Arrays.asList(true, false, false), onCaller);
+    }
+}
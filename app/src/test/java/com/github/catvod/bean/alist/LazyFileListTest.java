@@ -0,0 +1,143 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class LazyFileListTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) lines.add("电影/第" + i + "部#" + i);
+        return lines;
+    }
+
+    private File write(List<String> lines) throws IOException {
+        File file = new File(folder.getRoot(), "index.txt");
+        Files.write(file.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void parallelStreamKeepsOrder() throws IOException {
+        List<String> lines = lines(50000);
+        try (LazyFileList list = new LazyFileList(write(lines).getPath())) {
+            assertEquals(lines, list.parallelStream().collect(Collectors.toList()));
+            assertEquals(5000, list.parallelStream().filter(s -> s.endsWith("0")).count());
+        }
+    }
+
+    @Test
+    public void spliteratorSplitsExactly() throws IOException {
+        try (LazyFileList list = new LazyFileList(write(lines(4001)).getPath())) {
+            Spliterator<String> suffix = list.spliterator();
+            Spliterator<String> prefix = suffix.trySplit();
+            assertEquals(2000, prefix.estimateSize());
+            assertEquals(2001, suffix.estimateSize());
+            assertTrue(suffix.tryAdvance(line -> assertEquals("电影/第2000部#2000", line)));
+            assertNull("开始读取后不再切分", suffix.trySplit());
+            Spliterator<String> small = prefix.trySplit();
+            assertEquals(1000, small.estimateSize());
+            assertNull(small.trySplit());
+        }
+    }
+
+    @Test
+    public void rangeIteratorReadsAcrossChunks() throws IOException {
+        // 每行约 10KB，一块装不下几行
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) lines.add(new String(new char[3000 + i]).replace('\0', '长') + i);
+        try (LazyFileList list = new LazyFileList(write(lines).getPath())) {
+            Iterator<String> iterator = list.iterator(5, 25);
+            for (int i = 5; i < 25; i++) assertEquals(lines.get(i), iterator.next());
+            assertFalse(iterator.hasNext());
+            assertEquals(lines.get(29), list.get(29));
+            try {
+                list.iterator(10, 31);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void lineIndexIsSavedAndChecked() throws IOException {
+        List<String> lines = lines(3);
+        File file = write(lines);
+        File index = new File(file.getPath() + ".idx");
+        try (LazyFileList list = new LazyFileList(file.getPath())) {
+            assertEquals(3, list.size());
+        }
+        assertEquals(8 + 3 * 8, index.length());
+        try (LazyFileList list = new LazyFileList(file.getPath())) {
+            assertEquals(lines.get(2), list.get(2));
+        }
+        // 文件变了，长度对不上，重新扫描
+        Files.write(file.toPath(), "\n新的一行\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (LazyFileList list = new LazyFileList(file.getPath())) {
+            assertEquals(4, list.size());
+            assertEquals("新的一行", list.get(3));
+        }
+        assertEquals(8 + 4 * 8, index.length());
+    }
+
+    @Test
+    public void readAfterCloseThrows() throws IOException {
+        LazyFileList list = new LazyFileList(write(lines(10)).getPath());
+        assertEquals(10, list.size());
+        list.close();
+        assertEquals("索引保留", 10, list.size());
+        try {
+            list.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        LazyFileList unopened = new LazyFileList(write(lines(10)).getPath());
+        unopened.close();
+        try {
+            unopened.size();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void interruptedReaderDoesNotBreakOthers() throws Exception {
+        List<String> lines = lines(100);
+        try (LazyFileList list = new LazyFileList(write(lines).getPath())) {
+            assertEquals(lines.get(0), list.get(0));
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                Thread.currentThread().interrupt(); // 读取时通道随中断关闭
+                try {
+                    list.get(1);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+            reader.join();
+            assertTrue(failure.get() instanceof RuntimeException);
+            assertFalse(failure.get() instanceof IllegalStateException);
+            assertEquals(lines.get(99), list.get(99));
+            assertEquals(lines, new ArrayList<>(list));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ListingCacheTest {
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private ListingCache.Fetcher<String> fetcher(String value) {
+        return () -> {
+            fetches.incrementAndGet();
+            return value;
+        };
+    }
+
+    @Test
+    public void freshListingIsReused() throws Exception {
+        ListingCache<String> cache = new ListingCache<>(60 * 1000, 10 * 60 * 1000, 8);
+        assertEquals("v1", cache.get("http://h/a", "t", fetcher("v1")));
+        assertEquals("v1", cache.get("http://h/a", "t", fetcher("v2")));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void expiredListingIsFetchedAgain() throws Exception {
+        // 新鲜期和陈旧期限都是 0，过期后同步拉取，不走后台刷新
+        ListingCache<String> cache = new ListingCache<>(0, 0, 8);
+        assertEquals("v1", cache.get("http://h/a", "t", fetcher("v1")));
+        Thread.sleep(5);
+        assertEquals("v2", cache.get("http://h/a", "t", fetcher("v2")));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void otherTokenIsAMiss() throws Exception {
+        ListingCache<String> cache = new ListingCache<>(60 * 1000, 10 * 60 * 1000, 8);
+        cache.put("http://h/a", "old", "v1");
+        assertEquals("v1", cache.get("http://h/a", "old", fetcher("x")));
+        assertEquals("v2", cache.get("http://h/a", "new", fetcher("v2")));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() throws Exception {
+        ListingCache<String> cache = new ListingCache<>(60 * 1000, 10 * 60 * 1000, 8);
+        try {
+            cache.get("http://h/a", "t", () -> {
+                throw new IOException("断网");
+            });
+            fail();
+        } catch (IOException expected) {
+            assertEquals("断网", expected.getMessage());
+        }
+        assertEquals("v1", cache.get("http://h/a", "t", fetcher("v1")));
+    }
+
+    @Test
+    public void invalidateMatchesWholeServer() throws Exception {
+        ListingCache<String> cache = new ListingCache<>(60 * 1000, 10 * 60 * 1000, 8);
+        cache.put("http://h:5678", "t", "root");
+        cache.put("http://h:5678/a", "t", "a");
+        cache.put("http://h:56789/a", "t", "other");
+        cache.invalidate("http://h:5678");
+        assertEquals("new", cache.get("http://h:5678", "t", fetcher("new")));
+        assertEquals("new", cache.get("http://h:5678/a", "t", fetcher("new")));
+        assertEquals("other", cache.get("http://h:56789/a", "t", fetcher("new")));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void concurrentMissesFetchOnce() throws Exception {
+        ListingCache<String> cache = new ListingCache<>(60 * 1000, 10 * 60 * 1000, 8);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ListingCache.Fetcher<String> slow = () -> {
+            fetches.incrementAndGet();
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return "v1";
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("http://h/a", "t", slow));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<?>[] others = new Future<?>[3];
+            for (int i = 0; i < others.length; i++) {
+                others[i] = executor.submit(() -> cache.get("http://h/a", "t", slow));
+            }
+            Thread.sleep(50); // 让其余请求都等在同一个任务上
+            release.countDown();
+            assertEquals("v1", first.get());
+            for (Future<?> other : others) assertEquals("v1", other.get());
+            assertEquals(1, fetches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
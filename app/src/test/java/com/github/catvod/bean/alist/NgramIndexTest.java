@@ -0,0 +1,121 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.catvod.bean.alist.IndexSnapshotTest.vod;
+import static org.junit.Assert.*;
+
+public class NgramIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static NgramIndex build(String... texts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long written = new NgramIndex.Builder().write(texts.length, pos -> new String[]{texts[pos]}, new DataOutputStream(bytes));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals(buffer.limit(), written);
+        int grams = buffer.getInt(0);
+        int postings = buffer.getInt(4);
+        return new NgramIndex(
+                slice(buffer, 8, grams * 4).asIntBuffer(),
+                slice(buffer, 8 + grams * 4, (grams + 1) * 4).asIntBuffer(),
+                slice(buffer, 12 + grams * 8, postings * 4).asIntBuffer());
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        return dup.slice();
+    }
+
+    private static List<String> names(List<Vod> vods) {
+        List<String> names = new ArrayList<>();
+        for (Vod vod : vods) names.add(vod.getVodName());
+        return names;
+    }
+
+    @Test
+    public void normalizeKeepsLettersAndDigits() {
+        assertEquals("哈利波特与魔法石2001", NgramIndex.normalize("哈利·波特与魔法石 (2001)"));
+        assertEquals("theoffice", NgramIndex.normalize("The Office!"));
+        assertEquals("", NgramIndex.normalize(" - . "));
+    }
+
+    @Test
+    public void candidatesAreSortedSuperset() throws IOException {
+        NgramIndex index = build("流浪地球", "流浪地球2", "地球脉动", "球球大作战", "Friends");
+        assertArrayEquals(new int[]{0, 1}, index.candidates("流浪地"));
+        assertArrayEquals(new int[]{0, 1, 2}, index.candidates("地球"));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, index.candidates("球"));
+        assertArrayEquals(new int[]{4}, index.candidates("riend"));
+        assertArrayEquals(new int[0], index.candidates("火星"));
+        // 二元组都在但不相邻时也是候选，由 contains 排除
+        NgramIndex loose = build("流浪 浪地");
+        assertArrayEquals(new int[]{0}, loose.candidates("流浪地"));
+        assertFalse(NgramIndex.contains(NgramIndex.normalize("流浪 浪地"), "流浪地"));
+    }
+
+    @Test
+    public void builderHandlesManyGrams() throws IOException {
+        // 超过初始槽位数的二元组，触发扩容
+        String[] texts = new String[20000];
+        for (int i = 0; i < texts.length; i++) texts[i] = String.valueOf((char) (0x4E00 + i)) + (char) (0x4E00 + i + 1) + (char) (0x4E00 + i + 2);
+        NgramIndex index = build(texts);
+        for (int i : new int[]{0, 777, 19999}) {
+            String term = texts[i].substring(0, 2);
+            int[] found = index.candidates(term);
+            assertTrue(Arrays.binarySearch(found, i) >= 0);
+        }
+    }
+
+    @Test
+    public void searchRanksByMatchThenRating() throws IOException {
+        IndexSnapshot snapshot = IndexSnapshotTest.write(new File(folder.getRoot(), "s"), "v1",
+                vod("/电影/西游记之大圣归来/~soulist", "西游记之大圣归来", "", "8.3"),
+                vod("/电视剧/西游记/~soulist", "西游记", "", "9.6"),
+                vod("/电影/大话西游/~soulist", "大话西游", "", "8.7"),
+                vod("/电影/西游记.1986.mkv/~soufile", "西游记1986", "", "9.0"),
+                vod("/电影/合集/西游/孙悟空.mkv/~soufile", "孙悟空", "", "9.9"),
+                vod("/电视剧/西游记/~soulist", "西游记", "", "7.0"));
+        // 片名开头的同级按评分，片名包含的在后
+        assertEquals(Arrays.asList("西游记", "西游记1986", "西游记之大圣归来", "西游记", "大话西游"),
+                names(snapshot.search("西游", 5)));
+        // 片名完全相同的在最前，同级按评分
+        List<Vod> exact = snapshot.search("西游记", 10);
+        assertEquals("9.6", exact.get(0).getVodRemarks());
+        assertEquals("7.0", exact.get(1).getVodRemarks());
+        // 只有文件名含关键词的排在最后
+        assertEquals(Arrays.asList("孙悟空"), names(snapshot.search("孙悟空 mkv", 10)));
+        assertEquals(Arrays.asList("孙悟空", "西游记1986"), names(snapshot.search("mkv", 10)));
+        assertTrue(snapshot.search("   ", 10).isEmpty());
+        assertEquals(2, snapshot.search("西游", 2).size());
+    }
+
+    @Test
+    public void searchAcrossMergedSnapshot() throws IOException {
+        IndexSnapshot base = IndexSnapshotTest.write(new File(folder.getRoot(), "base"), "v1",
+                vod("/电影/三体/~soulist", "三体", "", "6.0"));
+        IndexSnapshot delta = IndexSnapshotTest.write(new File(folder.getRoot(), "delta"), "v1#1",
+                vod("/电视剧/三体/~soulist", "三体", "", "8.7"), vod("/电视剧/三体动画/~soulist", "三体动画", "", "5.0"));
+        List<Vod> found = base.merge(delta).search("三体", 10);
+        assertEquals(3, found.size());
+        assertEquals("/电视剧/三体/~soulist", found.get(0).getVodId());
+        assertEquals("/电影/三体/~soulist", found.get(1).getVodId());
+        assertEquals("三体动画", found.get(2).getVodName());
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SamplerTest {
+
+    /**
+     * 展开整个下标数组的部分洗牌，作为对照
+     */
+    private static int[] dense(Random random, int n, int k) {
+        k = Math.min(k, n);
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) indexes[i] = i;
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = tmp;
+        }
+        return Arrays.copyOf(indexes, k);
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(i);
+        return list;
+    }
+
+    @Test
+    public void sampleMatchesDenseShuffle() {
+        for (long seed = 0; seed < 50; seed++) {
+            for (int[] nk : new int[][]{{1, 1}, {10, 3}, {10, 10}, {1000, 999}, {100000, 37}}) {
+                int[] expected = dense(new Random(seed), nk[0], nk[1]);
+                assertArrayEquals(expected, new Sampler(seed).sample(nk[0], nk[1]));
+            }
+        }
+    }
+
+    @Test
+    public void sampleIsDistinctAndInRange() {
+        int[] picked = new Sampler(7).sample(500, 200);
+        assertEquals(200, picked.length);
+        Set<Integer> seen = new HashSet<>();
+        for (int i : picked) {
+            assertTrue(i >= 0 && i < 500);
+            assertTrue(seen.add(i));
+        }
+    }
+
+    @Test
+    public void sampleDoesNotDependOnN() {
+        // 展开 int[n] 的实现在这里会耗尽内存
+        int[] picked = new Sampler(1).sample(Integer.MAX_VALUE, 20);
+        assertEquals(20, new HashSet<>(Arrays.asList(Arrays.stream(picked).boxed().toArray(Integer[]::new))).size());
+    }
+
+    @Test
+    public void sampleClampsKToN() {
+        int[] picked = new Sampler(3).sample(5, 50);
+        Arrays.sort(picked);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, picked);
+        assertEquals(0, new Sampler(3).sample(0, 5).length);
+    }
+
+    @Test
+    public void sameSeedGivesSamePick() {
+        List<Integer> source = range(1000);
+        assertEquals(new Sampler(99).pick(source, 30, false), new Sampler(99).pick(source, 30, false));
+        assertNotEquals(new Sampler(99).pick(source, 30, false), new Sampler(100).pick(source, 30, false));
+    }
+
+    @Test
+    public void pickKeepsSourceOrder() {
+        List<Integer> picked = new Sampler(5).pick(range(1000), 50, true);
+        assertEquals(50, picked.size());
+        for (int i = 1; i < picked.size(); i++) assertTrue(picked.get(i - 1) < picked.get(i));
+    }
+
+    @Test
+    public void reservoirForSequentialSources() {
+        List<Integer> source = new LinkedList<>(range(1000));
+        List<Integer> picked = new Sampler(5).pick(source, 50, true);
+        assertEquals(50, picked.size());
+        assertEquals(50, new HashSet<>(picked).size());
+        for (int i = 1; i < picked.size(); i++) assertTrue(picked.get(i - 1) < picked.get(i));
+        assertEquals(range(10), new Sampler(5).pick(new LinkedList<>(range(10)), 20, true));
+    }
+
+    @Test
+    public void reservoirIsRoughlyUniform() {
+        int[] hits = new int[10];
+        Sampler sampler = new Sampler(11);
+        for (int round = 0; round < 20000; round++) {
+            for (int i : sampler.reservoir(range(10).iterator(), 3).getItems()) hits[i]++;
+        }
+        for (int count : hits) assertEquals(6000, count, 400);
+    }
+
+    @Test
+    public void shuffleKeepsElements() {
+        List<Integer> list = range(100);
+        new Sampler(2).shuffle(list);
+        assertNotEquals(range(100), list);
+        List<Integer> sorted = new ArrayList<>(list);
+        sorted.sort(null);
+        assertEquals(range(100), sorted);
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SorterTest {
+
+    /**
+     * Item 的 getName 用到 TextUtils，这里直接返回字段
+     */
+    private static Item item(String name, long size, String modified) {
+        return new Item() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public long getSize() {
+                return size;
+            }
+
+            @Override
+            public String getModified() {
+                return modified;
+            }
+        };
+    }
+
+    private static List<Item> items(String... names) {
+        List<Item> items = new ArrayList<>();
+        for (String name : names) items.add(item(name, 0, ""));
+        return items;
+    }
+
+    private static List<String> names(List<Item> items) {
+        List<String> names = new ArrayList<>();
+        for (Item item : items) names.add(item.getName());
+        return names;
+    }
+
+    private static List<String> sorted(String type, String order, List<Item> items) {
+        Sorter.sort(type, order, items);
+        return names(items);
+    }
+
+    @Test
+    public void digitRunsCompareByValue() {
+        assertEquals(Arrays.asList("第1集", "第2集", "第10集", "第100集"), sorted("name", "asc", items("第10集", "第2集", "第100集", "第1集")));
+        assertEquals(Arrays.asList("S01E9.mkv", "S01E10.mkv", "S02E1.mkv"), sorted("name", "asc", items("S02E1.mkv", "S01E10.mkv", "S01E9.mkv")));
+        assertEquals("数值相同时前导零少的在前", Arrays.asList("1", "01", "001", "2"), sorted("name", "asc", items("001", "2", "01", "1")));
+        assertEquals("超过 long 的数字段", Arrays.asList("9", "99999999999999999999", "100000000000000000000"),
+                sorted("name", "asc", items("100000000000000000000", "9", "99999999999999999999")));
+        assertEquals("数字段排在文字段前面", Arrays.asList("1a", "a1", "ab"), sorted("name", "asc", items("ab", "a1", "1a")));
+    }
+
+    @Test
+    public void textRunsUseChineseCollation() {
+        // 拼音序：a < bei < chong
+        assertEquals(Arrays.asList("阿凡达", "北京", "重庆"), sorted("name", "asc", items("重庆", "阿凡达", "北京")));
+        assertEquals(Arrays.asList("重庆", "北京", "阿凡达"), sorted("name", "desc", items("北京", "重庆", "阿凡达")));
+    }
+
+    @Test
+    public void compareAgreesWithSort() {
+        List<Item> items = items("第10集", "北京", "S01E9", "阿凡达", "第2集", "S01E10");
+        List<String> expected = sorted("name", "desc", new ArrayList<>(items));
+        items.sort(new Sorter("name", "desc"));
+        assertEquals(expected, names(items));
+    }
+
+    @Test
+    public void sizeAndDateSortAreStable() {
+        List<Item> items = new ArrayList<>(Arrays.asList(
+                item("a", 10, "2024-01-02T00:00:00.000+0800"),
+                item("b", 5, "无法解析"),
+                item("c", 10, "2023-06-01T00:00:00.000+0800"),
+                item("d", 1, "2024-01-02T00:00:00.000+0800")));
+        assertEquals(Arrays.asList("d", "b", "a", "c"), sorted("size", "asc", items));
+        assertEquals("相同大小保持原顺序", Arrays.asList("a", "c", "b", "d"), sorted("size", "desc", items));
+        assertEquals("解析不了的日期按当前时间", Arrays.asList("c", "a", "d", "b"), sorted("date", "asc", items));
+    }
+
+    @Test
+    public void unknownTypeKeepsComparatorBehavior() {
+        // 和原来一样交给总是返回 -1 的比较器，短列表被整体倒过来
+        assertEquals(Arrays.asList("c", "b", "a"), sorted("type", "asc", items("a", "b", "c")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.catvod.bean.alist;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TtlCacheTest {
+
+    @Test
+    public void entriesExpire() throws InterruptedException {
+        TtlCache<String, String> cache = new TtlCache<>(50, 8);
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        cache.put("a", "2"); // 重新放入后重新计时
+        assertEquals("2", cache.get("a"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        TtlCache<String, String> cache = new TtlCache<>(60 * 1000, 2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a")); // a 最近用过，淘汰 b
+        cache.put("c", "3");
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void removeAndClear() {
+        TtlCache<String, String> cache = new TtlCache<>(60 * 1000, 8);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        cache.clear();
+        assertNull(cache.get("b"));
+    }
+}
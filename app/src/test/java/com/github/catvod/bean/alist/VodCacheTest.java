@@ -0,0 +1,76 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VodCacheTest {
+
+    private static final int WEIGHT = 256 + 2 * 3; // 两个字符的 id 加一个字符的片名
+
+    private static Vod vod(String id) {
+        return new Vod(id, "n", "", "");
+    }
+
+    @Test
+    public void missesAreLoadedOnce() {
+        List<String> loaded = new ArrayList<>();
+        VodCache cache = new VodCache(WEIGHT * 4, id -> {
+            loaded.add(id);
+            return id.startsWith("a") ? vod(id) : null;
+        });
+        assertEquals("a0", cache.get("a0").getVodId());
+        assertEquals("a0", cache.get("a0").getVodId());
+        assertNull(cache.get("b0"));
+        assertNull("取不到的不缓存", cache.get("b0"));
+        assertEquals(Arrays.asList("a0", "b0", "b0"), loaded);
+        assertEquals(1, cache.size());
+        assertEquals(0.25, cache.hitRate(), 0.001);
+    }
+
+    @Test
+    public void scanDoesNotEvictReusedEntries() {
+        VodCache cache = new VodCache(WEIGHT * 4, null);
+        cache.put("a0", vod("a0"));
+        cache.put("a1", vod("a1"));
+        cache.get("a0");
+        cache.get("a1"); // 再次命中，升到保护段
+        for (int i = 0; i < 10; i++) cache.put("b" + i, vod("b" + i)); // 一次性浏览
+        assertEquals(4, cache.size());
+        assertNotNull(cache.get("a0"));
+        assertNotNull(cache.get("a1"));
+        assertNotNull(cache.get("b9"));
+        assertNull(cache.get("b7"));
+    }
+
+    @Test
+    public void fullProtectedSegmentDemotesEldest() {
+        VodCache cache = new VodCache(WEIGHT * 4, null); // 保护段放得下 3 条
+        for (int i = 0; i < 4; i++) cache.put("a" + i, vod("a" + i));
+        for (int i = 0; i < 4; i++) cache.get("a" + i); // a0 被降回试用段
+        cache.put("b0", vod("b0"));
+        assertNull(cache.get("a0"));
+        assertNotNull(cache.get("a3"));
+        assertNotNull(cache.get("b0"));
+    }
+
+    @Test
+    public void putReweighsReplacedEntry() {
+        VodCache cache = new VodCache(WEIGHT * 4, null);
+        for (int i = 0; i < 4; i++) cache.put("a" + i, vod("a" + i));
+        Vod big = vod("a3");
+        big.setVodContent(new String(new char[WEIGHT / 2])); // 详情补全后多占一条的大小
+        cache.put("a3", big);
+        assertEquals(3, cache.size());
+        assertNull(cache.get("a0"));
+        assertSame(big, cache.get("a3"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
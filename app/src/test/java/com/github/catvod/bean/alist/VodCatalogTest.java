@@ -0,0 +1,142 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class VodCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IndexSnapshot write(String name, String version, String... ids) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (IndexSnapshot.Writer writer = new IndexSnapshot.Writer(file)) {
+            IndexSnapshot.Writer.Segment segment = writer.segment();
+            for (int i = 0; i < ids.length; i++) {
+                String id = ids[i];
+                String path = id.substring(0, id.lastIndexOf('/'));
+                segment.add(new Vod("盘" + id, path.substring(path.lastIndexOf('/') + 1), i % 2 == 0 ? "pic" : "", "7.5"));
+            }
+            writer.commit(version);
+        }
+        return IndexSnapshot.open(file, version);
+    }
+
+    @Test
+    public void indexOfFindsEveryRecord() throws IOException {
+        String[] ids = new String[3000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "/电影/" + (i % 50) + "/片名" + i + (i % 3 == 0 ? ".mkv/~soufile" : "/~soulist");
+        }
+        VodCatalog catalog = write("s.bin", "v1", ids).catalog();
+        for (String id : ids) {
+            int i = catalog.indexOf(id);
+            assertTrue(id, i >= 0);
+            assertEquals(id, catalog.getId(i));
+        }
+    }
+
+    @Test
+    public void indexOfMissesUnknownIds() throws IOException {
+        VodCatalog catalog = write("s.bin", "v1", "/电影/a/~soulist", "/电影/b.mkv/~soufile").catalog();
+        assertEquals(-1, catalog.indexOf("/电影/c/~soulist"));
+        assertEquals(-1, catalog.indexOf("/电影/a/~soufile")); // 同名但类型不同
+        assertEquals(-1, catalog.indexOf("/电影/a"));
+        assertEquals(-1, catalog.indexOf("/电视剧/a/~soulist"));
+        assertEquals(-1, catalog.indexOf("/a/~soulist"));
+    }
+
+    @Test
+    public void indexOfPrefersDeltaInMergedCatalog() throws IOException {
+        IndexSnapshot base = write("base.bin", "v1", "/电影/a/~soulist", "/电影/b/~soulist");
+        IndexSnapshot delta = write("delta.bin", "v1", "/电影/b/~soulist", "/电影/c/~soulist");
+        VodCatalog merged = base.merge(delta).catalog();
+        assertEquals(4, merged.size());
+        // 增量在前，两边都有的记录取增量里的
+        assertEquals("/电影/b/~soulist", merged.getId(merged.indexOf("/电影/b/~soulist")));
+        assertTrue(merged.indexOf("/电影/b/~soulist") < 2);
+        assertTrue(merged.indexOf("/电影/a/~soulist") >= 2);
+        assertTrue(merged.indexOf("/电影/c/~soulist") < 2);
+    }
+
+    @Test
+    public void indexOfMapsToViewPositions() throws IOException {
+        VodCatalog catalog = write("s.bin", "v1", "/a/x/~soulist", "/a/y/~soulist", "/b/z/~soulist").catalog();
+        int y = catalog.indexOf("/a/y/~soulist");
+        VodCatalog view = catalog.view(new int[]{y}).named("别名");
+        assertEquals(0, view.indexOf("/a/y/~soulist"));
+        assertEquals(-1, view.indexOf("/a/x/~soulist"));
+        assertEquals("别名/a/y/~soulist", view.get(0).getVodId());
+    }
+
+    @Test
+    public void filterMatchesPathPrefix() throws IOException {
+        VodCatalog catalog = write("s.bin", "v1", "/电影/4K/a/~soulist", "/电影/4K/b.mkv/~soufile", "/电影/1080P/c/~soulist",
+                "/电影/4KHDR/d/~soulist", "/电视剧/e/~soulist").catalog();
+        assertEquals(5, catalog.size());
+        assertEquals(4, catalog.filter("/电影/").length);
+        assertEquals(3, catalog.filter("/电影/4K").length); // 前缀按字符串比较，包括 4KHDR
+        int[] exact = catalog.filter("/电影/4K/");
+        assertEquals(2, exact.length);
+        for (int i : exact) assertTrue(catalog.getId(i).startsWith("/电影/4K/"));
+        // 前缀落在文件名中间时逐条比较
+        int[] partial = catalog.filter("/电影/4K/b");
+        assertEquals(1, partial.length);
+        assertEquals("/电影/4K/b.mkv/~soufile", catalog.getId(partial[0]));
+        assertEquals(0, catalog.filter("/综艺").length);
+    }
+
+    @Test
+    public void viewsShareColumns() throws IOException {
+        VodCatalog catalog = write("s.bin", "v1", "/a/1/~soulist", "/a/2/~soulist", "/a/3/~soulist", "/a/4/~soulist").catalog();
+        VodCatalog view = catalog.view(new int[]{3, 1});
+        assertEquals(2, view.size());
+        assertEquals(catalog.getId(3), view.getId(0));
+        VodCatalog nested = view.view(new int[]{1});
+        assertEquals(catalog.getId(1), nested.getId(0));
+        assertEquals(2, view.scope().cardinality());
+        assertTrue(view.scope().get(3));
+        assertEquals(catalog.getId(2), view.records(new int[]{2}).getId(0));
+        try {
+            view.get(2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void concatNumbersRecordsContinuously() throws IOException {
+        VodCatalog first = write("a.bin", "v1", "/a/1/~soulist", "/a/2/~soulist").catalog();
+        VodCatalog second = write("b.bin", "v1", "/b/3/~soulist").catalog();
+        VodCatalog all = first.concat(second).named("盘");
+        assertEquals(3, all.size());
+        assertEquals("盘/b/3/~soulist", all.get(2).getVodId());
+        assertArrayEquals(new int[]{2}, all.filter("/b/"));
+        assertEquals(3, all.scope().cardinality());
+        try {
+            all.view(new int[]{0}).concat(second);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void withinUsesFacetBitmaps() throws IOException {
+        VodCatalog catalog = write("s.bin", "v1", "/电影/a/~soulist", "/电视剧/b/~soulist", "/电影/c/~soulist").catalog();
+        VodCatalog movies = catalog.within("/电影/");
+        assertEquals(2, movies.size());
+        assertSame(catalog.facets(), movies.facets());
+        VodCatalog view = catalog.view(new int[]{catalog.indexOf("/电影/c/~soulist"), catalog.indexOf("/电视剧/b/~soulist")});
+        VodCatalog inView = view.within("/电影/");
+        assertEquals(1, inView.size());
+        assertEquals("/电影/c/~soulist", inView.getId(0));
+    }
+}
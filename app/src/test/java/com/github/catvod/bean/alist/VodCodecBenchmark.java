@@ -0,0 +1,69 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.Vod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileBasedList 记录编码的对比：原来的 Gson JSON 行和 Vod 二进制编码。
+ * Android 工程没有 JMH 插件，在桌面 JVM 上用 main 运行（IDE 里直接运行，或者把测试类路径交给 java）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VodCodecBenchmark {
+
+    private final JsonCodec<Vod> json = new JsonCodec<>(Vod.class);
+    private final VodCodec binary = new VodCodec();
+    private Vod vod;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setup() {
+        vod = VodCodecTest.full(42);
+        jsonBytes = json.encode(vod);
+        binaryBytes = binary.encode(vod);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.encode(vod);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binary.encode(vod);
+    }
+
+    @Benchmark
+    public Vod decodeJson() {
+        return json.decode(jsonBytes);
+    }
+
+    @Benchmark
+    public Vod decodeBinary() {
+        return binary.decode(binaryBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VodCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.catvod.bean.alist;
+
+import com.github.catvod.bean.DoubanInfo;
+import com.github.catvod.bean.Vod;
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VodCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Gson gson = new Gson();
+    private final VodCodec codec = new VodCodec();
+
+    static Vod full(int i) {
+        Vod vod = new Vod("小雅/电影/片名" + i + "/~soulist", "片名 " + i + " 🎬", "http://pic/" + i + ".jpg", "8.5");
+        vod.setTypeName("电影");
+        vod.setVodYear("2024");
+        vod.setVodArea("");
+        vod.setVodContent(repeat("简介", 200)); // 长度前缀要用多个字节
+        vod.setVodPlayUrl("第1集$/a/1.mkv#第2集$/a/2.mkv");
+        vod.setStyle(Vod.Style.rect(0.75f));
+        DoubanInfo info = new DoubanInfo();
+        info.setId("1234" + i);
+        info.setRating("8");
+        info.setName("片名 " + i);
+        info.setPlot("");
+        vod.doubanInfo = info;
+        return vod;
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    private void assertRoundTrip(Vod vod) {
+        // Gson 不输出 null，空串会输出，null 和空串混淆时 JSON 不同
+        assertEquals(gson.toJson(vod), gson.toJson(codec.decode(codec.encode(vod))));
+    }
+
+    @Test
+    public void roundTripsAllFields() {
+        assertRoundTrip(full(1));
+    }
+
+    @Test
+    public void keepsNullsApartFromEmptyStrings() {
+        Vod vod = new Vod();
+        vod.setVodId("");
+        vod.setVodName(null);
+        vod.doubanInfo = null;
+        Vod decoded = codec.decode(codec.encode(vod));
+        String json = gson.toJson(decoded);
+        assertTrue(json.contains("\"vod_id\":\"\""));
+        assertFalse(json.contains("vod_name"));
+        assertNull(decoded.doubanInfo);
+        assertRoundTrip(vod);
+    }
+
+    @Test
+    public void keepsStyleWithoutRatio() {
+        Vod vod = new Vod("id", "name", "pic");
+        vod.setStyle(Vod.Style.list());
+        assertRoundTrip(vod);
+        vod.setStyle(null);
+        assertRoundTrip(vod);
+    }
+
+    @Test
+    public void keepsNonAsciiText() {
+        Vod vod = new Vod("盘/路径/文件.mkv", "한국어 タイトル ñ 𝄞", "", "");
+        assertRoundTrip(vod);
+    }
+
+    @Test
+    public void fileBasedListRoundTripsThroughOffsetIndex() {
+        File file = new File(folder.getRoot(), "vods.list");
+        List<Vod> expected = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) expected.add(i % 7 == 0 ? new Vod() : full(i));
+        try (FileBasedList<Vod> list = new FileBasedList<>(file.getPath(), codec)) {
+            list.addAll(expected);
+            assertEquals(2500, list.size());
+            for (int i : new int[]{0, 1, 999, 1000, 1001, 2499}) {
+                assertEquals(gson.toJson(expected.get(i)), gson.toJson(list.get(i)));
+            }
+        }
+        assertTrue(new File(file.getPath() + ".idx").exists());
+        // 重新打开时从 .idx 取行位置
+        try (FileBasedList<Vod> list = new FileBasedList<>(file.getPath(), codec)) {
+            assertEquals(2500, list.size()); // close 时写缓存里的 500 条也已落盘
+            int i = 0;
+            for (Vod vod : list) assertEquals(gson.toJson(expected.get(i++)), gson.toJson(vod));
+        }
+        // 没有索引时按长度前缀重新扫描
+        assertTrue(new File(file.getPath() + ".idx").delete());
+        try (FileBasedList<Vod> list = new FileBasedList<>(file.getPath(), codec)) {
+            assertEquals(2500, list.size());
+            assertEquals(gson.toJson(expected.get(1234)), gson.toJson(list.get(1234)));
+        }
+    }
+}